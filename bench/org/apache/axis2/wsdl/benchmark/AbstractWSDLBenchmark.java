@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.benchmark;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base of the benchmarks that work on a synthetic WSDL. The size of the WSDL is set with the
+ * operations, types and depth parameters, e.g. -p operations=200 on the JMH command line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public abstract class AbstractWSDLBenchmark {
+
+    /** The schema compiler properties WSDL2C runs with */
+    public static final String C_SCHEMA_PROPERTIES =
+            "/org/apache/axis2/schema/c-schema-compile.properties";
+
+    @Param({"10", "100"})
+    public int operations;
+
+    @Param({"10", "100"})
+    public int types;
+
+    @Param({"1", "4"})
+    public int depth;
+
+    protected File workDir;
+    protected File wsdlFile;
+
+    @Setup(Level.Trial)
+    public void createWSDL() throws Exception {
+        System.setProperty("org.apache.adb.properties", C_SCHEMA_PROPERTIES);
+        workDir = File.createTempFile("wsdl2c-benchmark", "");
+        workDir.delete();
+        workDir.mkdirs();
+        wsdlFile = SyntheticWSDL.write(workDir, operations, types, depth);
+        setUp();
+    }
+
+    /**
+     * Prepares the benchmark once the WSDL has been written.
+     *
+     * @throws Exception
+     */
+    protected void setUp() throws Exception {
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteWorkDir() throws IOException {
+        delete(workDir);
+    }
+
+    /**
+     * Gets a new directory for generated files.
+     *
+     * @param name
+     * @return Returns File.
+     */
+    protected File getOutputDir(String name) {
+        File outputDir = new File(workDir, name);
+        outputDir.mkdirs();
+        return outputDir;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (int i = 0; i < children.length; i++) {
+                delete(children[i]);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.benchmark;
+
+import org.apache.axis2.util.CommandLineOptionParser;
+import org.apache.axis2.wsdl.codegen.CodeGenerationEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Runs the whole of WSDL2C, from reading the WSDL to writing the C files, for the client and
+ * for the server side. The files are overwritten by every run.
+ */
+public class CodeGenerationBenchmark extends AbstractWSDLBenchmark {
+
+    @Benchmark
+    public void generateClient() throws Exception {
+        generate(new String[]{
+                "-uri", wsdlFile.getAbsolutePath(),
+                "-o", getOutputDir("client").getAbsolutePath(),
+                "-l", "c",
+                "-or"});
+    }
+
+    @Benchmark
+    public void generateServer() throws Exception {
+        generate(new String[]{
+                "-uri", wsdlFile.getAbsolutePath(),
+                "-o", getOutputDir("server").getAbsolutePath(),
+                "-l", "c",
+                "-ss", "-sd",
+                "-or"});
+    }
+
+    private void generate(String[] args) throws Exception {
+        new CodeGenerationEngine(new CommandLineOptionParser(args)).generate();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.benchmark;
+
+import org.apache.axis2.schema.CompilerOptions;
+import org.apache.axis2.schema.SchemaCompiler;
+import org.apache.ws.commons.schema.XmlSchema;
+import org.apache.ws.commons.schema.XmlSchemaCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.w3c.dom.Element;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Compiles the schema of the WSDL with the C bean writer (CStructWriter), once building the
+ * models only and once writing the structs as well.
+ */
+public class SchemaCompileBenchmark extends AbstractWSDLBenchmark {
+
+    private Element schemaElement;
+    private XmlSchema schema;
+    private File outputDir;
+
+    protected void setUp() throws Exception {
+        schemaElement = SyntheticWSDL.getSchemaElement(wsdlFile);
+        outputDir = getOutputDir("structs");
+    }
+
+    /** The compiler annotates the schema it compiles, so every compilation gets a new one. */
+    @Setup(Level.Invocation)
+    public void readSchema() {
+        XmlSchemaCollection schemaCollection = new XmlSchemaCollection();
+        schemaCollection.setBaseUri(workDir.toURI().toString());
+        schema = schemaCollection.read(schemaElement);
+    }
+
+    @Benchmark
+    public Map compileModels() throws Exception {
+        return compile(false);
+    }
+
+    @Benchmark
+    public Map compileAndWrite() throws Exception {
+        return compile(true);
+    }
+
+    private Map compile(boolean writeOutput) throws Exception {
+        CompilerOptions options = new CompilerOptions();
+        options.setOutputLocation(outputDir);
+        options.setWriteOutput(writeOutput);
+        options.setWrapClasses(false);
+        options.setKeepModels(!writeOutput);
+        SchemaCompiler compiler = new SchemaCompiler(options);
+        compiler.compile(schema);
+        return compiler.getProcessedElementMap();
+    }
+}
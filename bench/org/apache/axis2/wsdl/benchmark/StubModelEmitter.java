@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.benchmark;
+
+import org.apache.axis2.wsdl.codegen.emitter.CEmitter;
+import org.w3c.dom.Document;
+
+/** C emitter that hands out the stub model instead of writing it. */
+public class StubModelEmitter extends CEmitter {
+
+    /**
+     * Creates the model the stub header and source are generated from.
+     *
+     * @return Returns Document.
+     * @throws Exception
+     */
+    public Document createStubModel() throws Exception {
+        return createDOMDocumentForInterfaceImplementation();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.benchmark;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Creates document/literal WSDL 1.1 files of a given size for the benchmarks.
+ * <p/>
+ * The schema holds typeCount named complex types. Each of them has a few simple fields, an
+ * array, a reference to the type before it and a chain of anonymous complex types nested
+ * depth levels deep. Every one of the operationCount operations has a request and a response
+ * wrapper element referring to one of those types.
+ */
+public class SyntheticWSDL {
+
+    public static final String TARGET_NAMESPACE = "http://benchmark.wsdl2c.apache.org/synthetic";
+    public static final String SERVICE_NAME = "SyntheticService";
+    public static final String PORT_NAME = "SyntheticPort";
+
+    private static final String XSD_NAMESPACE = "http://www.w3.org/2001/XMLSchema";
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * Creates the WSDL document.
+     *
+     * @param operationCount the number of operations of the port type
+     * @param typeCount      the number of named complex types in the schema
+     * @param depth          the nesting depth of the anonymous types in each named type
+     * @return Returns String.
+     */
+    public static String create(int operationCount, int typeCount, int depth) {
+        StringBuffer wsdl = new StringBuffer();
+        wsdl.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        wsdl.append("<wsdl:definitions xmlns:wsdl=\"http://schemas.xmlsoap.org/wsdl/\"\n");
+        wsdl.append("    xmlns:soap=\"http://schemas.xmlsoap.org/wsdl/soap/\"\n");
+        wsdl.append("    xmlns:xsd=\"").append(XSD_NAMESPACE).append("\"\n");
+        wsdl.append("    xmlns:tns=\"").append(TARGET_NAMESPACE).append("\"\n");
+        wsdl.append("    targetNamespace=\"").append(TARGET_NAMESPACE).append("\">\n");
+
+        wsdl.append("  <wsdl:types>\n");
+        wsdl.append("    <xsd:schema xmlns:xsd=\"").append(XSD_NAMESPACE).append("\"");
+        wsdl.append(" xmlns:tns=\"").append(TARGET_NAMESPACE).append("\"");
+        wsdl.append(" targetNamespace=\"").append(TARGET_NAMESPACE).append("\"");
+        wsdl.append(" elementFormDefault=\"qualified\">\n");
+        for (int i = 0; i < typeCount; i++) {
+            wsdl.append("      <xsd:complexType name=\"Type").append(i).append("\">\n");
+            wsdl.append("        <xsd:sequence>\n");
+            wsdl.append("          <xsd:element name=\"name\" type=\"xsd:string\"/>\n");
+            wsdl.append("          <xsd:element name=\"count\" type=\"xsd:int\"/>\n");
+            wsdl.append("          <xsd:element name=\"values\" type=\"xsd:double\"");
+            wsdl.append(" minOccurs=\"0\" maxOccurs=\"unbounded\"/>\n");
+            if (i > 0) {
+                wsdl.append("          <xsd:element name=\"previous\" type=\"tns:Type");
+                wsdl.append(i - 1).append("\" minOccurs=\"0\"/>\n");
+            }
+            appendNestedElement(wsdl, 1, depth, "          ");
+            wsdl.append("        </xsd:sequence>\n");
+            wsdl.append("        <xsd:attribute name=\"version\" type=\"xsd:int\"/>\n");
+            wsdl.append("      </xsd:complexType>\n");
+        }
+        for (int i = 0; i < operationCount; i++) {
+            appendWrapperElement(wsdl, "operation" + i + "Request", i % typeCount);
+            appendWrapperElement(wsdl, "operation" + i + "Response", (i + 1) % typeCount);
+        }
+        wsdl.append("    </xsd:schema>\n");
+        wsdl.append("  </wsdl:types>\n");
+
+        for (int i = 0; i < operationCount; i++) {
+            appendMessage(wsdl, "operation" + i + "Request");
+            appendMessage(wsdl, "operation" + i + "Response");
+        }
+
+        wsdl.append("  <wsdl:portType name=\"SyntheticPortType\">\n");
+        for (int i = 0; i < operationCount; i++) {
+            wsdl.append("    <wsdl:operation name=\"operation").append(i).append("\">\n");
+            wsdl.append("      <wsdl:input message=\"tns:operation").append(i);
+            wsdl.append("Request\"/>\n");
+            wsdl.append("      <wsdl:output message=\"tns:operation").append(i);
+            wsdl.append("Response\"/>\n");
+            wsdl.append("    </wsdl:operation>\n");
+        }
+        wsdl.append("  </wsdl:portType>\n");
+
+        wsdl.append("  <wsdl:binding name=\"SyntheticBinding\" type=\"tns:SyntheticPortType\">\n");
+        wsdl.append("    <soap:binding style=\"document\"");
+        wsdl.append(" transport=\"http://schemas.xmlsoap.org/soap/http\"/>\n");
+        for (int i = 0; i < operationCount; i++) {
+            wsdl.append("    <wsdl:operation name=\"operation").append(i).append("\">\n");
+            wsdl.append("      <soap:operation soapAction=\"urn:operation").append(i);
+            wsdl.append("\"/>\n");
+            wsdl.append("      <wsdl:input><soap:body use=\"literal\"/></wsdl:input>\n");
+            wsdl.append("      <wsdl:output><soap:body use=\"literal\"/></wsdl:output>\n");
+            wsdl.append("    </wsdl:operation>\n");
+        }
+        wsdl.append("  </wsdl:binding>\n");
+
+        wsdl.append("  <wsdl:service name=\"").append(SERVICE_NAME).append("\">\n");
+        wsdl.append("    <wsdl:port name=\"").append(PORT_NAME);
+        wsdl.append("\" binding=\"tns:SyntheticBinding\">\n");
+        wsdl.append("      <soap:address location=\"http://localhost:8080/axis2/services/");
+        wsdl.append(SERVICE_NAME).append("\"/>\n");
+        wsdl.append("    </wsdl:port>\n");
+        wsdl.append("  </wsdl:service>\n");
+        wsdl.append("</wsdl:definitions>\n");
+        return wsdl.toString();
+    }
+
+    /**
+     * Writes the WSDL document to a file in the given directory.
+     *
+     * @return Returns the file written.
+     * @throws IOException
+     */
+    public static File write(File dir, int operationCount, int typeCount, int depth)
+            throws IOException {
+        File wsdlFile = new File(dir, "synthetic-" + operationCount + "-" + typeCount + "-" +
+                                      depth + ".wsdl");
+        Writer out = new OutputStreamWriter(new FileOutputStream(wsdlFile), ENCODING);
+        try {
+            out.write(create(operationCount, typeCount, depth));
+        } finally {
+            out.close();
+        }
+        return wsdlFile;
+    }
+
+    /**
+     * Reads the schema element out of a WSDL file written by this class.
+     *
+     * @param wsdlFile
+     * @return Returns Element.
+     * @throws Exception
+     */
+    public static Element getSchemaElement(File wsdlFile) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(wsdlFile);
+        NodeList schemas = document.getElementsByTagNameNS(XSD_NAMESPACE, "schema");
+        return (Element)schemas.item(0);
+    }
+
+    private static void appendNestedElement(StringBuffer wsdl, int level, int depth,
+                                            String indent) {
+        if (level > depth) {
+            return;
+        }
+        wsdl.append(indent).append("<xsd:element name=\"level").append(level);
+        wsdl.append("\" minOccurs=\"0\">\n");
+        wsdl.append(indent).append("  <xsd:complexType>\n");
+        wsdl.append(indent).append("    <xsd:sequence>\n");
+        wsdl.append(indent).append("      <xsd:element name=\"id\" type=\"xsd:long\"/>\n");
+        wsdl.append(indent).append("      <xsd:element name=\"label\" type=\"xsd:string\"");
+        wsdl.append(" minOccurs=\"0\" maxOccurs=\"unbounded\"/>\n");
+        appendNestedElement(wsdl, level + 1, depth, indent + "      ");
+        wsdl.append(indent).append("    </xsd:sequence>\n");
+        wsdl.append(indent).append("  </xsd:complexType>\n");
+        wsdl.append(indent).append("</xsd:element>\n");
+    }
+
+    private static void appendWrapperElement(StringBuffer wsdl, String name, int type) {
+        wsdl.append("      <xsd:element name=\"").append(name).append("\">\n");
+        wsdl.append("        <xsd:complexType>\n");
+        wsdl.append("          <xsd:sequence>\n");
+        wsdl.append("            <xsd:element name=\"value\" type=\"tns:Type").append(type);
+        wsdl.append("\"/>\n");
+        wsdl.append("          </xsd:sequence>\n");
+        wsdl.append("        </xsd:complexType>\n");
+        wsdl.append("      </xsd:element>\n");
+    }
+
+    private static void appendMessage(StringBuffer wsdl, String name) {
+        wsdl.append("  <wsdl:message name=\"").append(name).append("\">\n");
+        wsdl.append("    <wsdl:part name=\"parameters\" element=\"tns:").append(name);
+        wsdl.append("\"/>\n");
+        wsdl.append("  </wsdl:message>\n");
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.benchmark;
+
+import org.apache.axis2.description.WSDL11ToAxisServiceBuilder;
+import org.apache.axis2.schema.CompilerOptions;
+import org.apache.axis2.schema.SchemaCompiler;
+import org.apache.axis2.util.CommandLineOptionParser;
+import org.apache.axis2.wsdl.codegen.CodeGenConfiguration;
+import org.apache.axis2.wsdl.codegen.extension.CodeGenExtension;
+import org.apache.axis2.wsdl.util.ConfigPropertyFileLoader;
+import org.apache.axis2.wsdl.util.XSLTIncludeResolver;
+import org.apache.axis2.wsdl.util.XSLTTemplateCache;
+import org.apache.ws.commons.schema.XmlSchemaCollection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.w3c.dom.Document;
+
+import javax.wsdl.Definition;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+import javax.xml.namespace.QName;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.OutputStream;
+
+/**
+ * Runs single templates over models built beforehand: the C bean source template over the
+ * models of all the structs of the schema, and the stub source template over the stub model.
+ * The output is counted and dropped.
+ */
+public class TemplateBenchmark extends AbstractWSDLBenchmark {
+
+    private static final String C_LANGUAGE = "c";
+    private static final String BEAN_SOURCE_TEMPLATE =
+            "/org/apache/axis2/schema/template/CADBBeanTemplateSource.xsl";
+    private static final String STUB_SOURCE_TEMPLATE =
+            "/org/apache/axis2/wsdl/template/c/StubSourceTemplate.xsl";
+
+    private Document[] beanModels;
+    private Templates beanSourceTemplates;
+    private Document stubModel;
+    private Templates stubSourceTemplates;
+    private URIResolver resolver;
+
+    protected void setUp() throws Exception {
+        // the struct models, as the schema compiler builds them for CStructWriter
+        XmlSchemaCollection schemaCollection = new XmlSchemaCollection();
+        schemaCollection.setBaseUri(workDir.toURI().toString());
+        CompilerOptions options = new CompilerOptions();
+        options.setOutputLocation(getOutputDir("structs"));
+        options.setWriteOutput(false);
+        options.setKeepModels(true);
+        SchemaCompiler compiler = new SchemaCompiler(options);
+        compiler.compile(schemaCollection.read(SyntheticWSDL.getSchemaElement(wsdlFile)));
+        beanModels = (Document[])compiler.getProcessedModelMap().values()
+                .toArray(new Document[0]);
+        beanSourceTemplates =
+                XSLTTemplateCache.getTemplates(C_LANGUAGE, BEAN_SOURCE_TEMPLATE, null);
+
+        // the stub model, after the extensions have run the way CodeGenerationEngine runs them
+        CodeGenConfiguration configuration = new CodeGenConfiguration(
+                new CommandLineOptionParser(new String[]{
+                        "-uri", wsdlFile.getAbsolutePath(),
+                        "-o", getOutputDir("stub").getAbsolutePath(),
+                        "-l", C_LANGUAGE}).getAllOptions());
+        WSDLReader reader = WSDLFactory.newInstance().newWSDLReader();
+        reader.setFeature("javax.wsdl.verbose", false);
+        Definition definition = reader.readWSDL(wsdlFile.getAbsolutePath());
+        WSDL11ToAxisServiceBuilder builder = new WSDL11ToAxisServiceBuilder(
+                definition,
+                new QName(SyntheticWSDL.TARGET_NAMESPACE, SyntheticWSDL.SERVICE_NAME),
+                null);
+        builder.setCodegen(true);
+        configuration.addAxisService(builder.populateService());
+        configuration.setWsdlDefinition(definition);
+        configuration.setBaseURI(workDir.toURI().toString());
+
+        String[] extensions = ConfigPropertyFileLoader.getExtensionClassNames();
+        for (int i = 0; extensions != null && i < extensions.length; i++) {
+            CodeGenExtension extension = (CodeGenExtension)Class.forName(extensions[i].trim())
+                    .newInstance();
+            extension.engage(configuration);
+        }
+
+        StubModelEmitter emitter = new StubModelEmitter();
+        emitter.setCodeGenConfiguration(configuration);
+        emitter.setMapper(configuration.getTypeMapper());
+        stubModel = emitter.createStubModel();
+        resolver = new XSLTIncludeResolver(configuration);
+        stubSourceTemplates =
+                XSLTTemplateCache.getTemplates(C_LANGUAGE, STUB_SOURCE_TEMPLATE, resolver);
+    }
+
+    @Benchmark
+    public long beanSourceTemplate() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        for (int i = 0; i < beanModels.length; i++) {
+            beanSourceTemplates.newTransformer().transform(new DOMSource(beanModels[i]),
+                                                           new StreamResult(out));
+        }
+        return out.count;
+    }
+
+    @Benchmark
+    public long stubSourceTemplate() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        Transformer transformer = stubSourceTemplates.newTransformer();
+        transformer.setURIResolver(resolver);
+        transformer.transform(new DOMSource(stubModel), new StreamResult(out));
+        return out.count;
+    }
+
+    /** Counts the bytes written to it and drops them */
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        public void write(int b) {
+            count++;
+        }
+
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.benchmark;
+
+import org.apache.axis2.description.AxisService;
+import org.apache.axis2.description.WSDL11ToAxisServiceBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import javax.wsdl.Definition;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLReader;
+import javax.xml.namespace.QName;
+
+/** Loads the WSDL with WSDL4J and builds the Axis service from it the way WSDL2C does. */
+public class WSDLBuildBenchmark extends AbstractWSDLBenchmark {
+
+    @Benchmark
+    public Definition readDefinition() throws Exception {
+        WSDLReader reader = WSDLFactory.newInstance().newWSDLReader();
+        reader.setFeature("javax.wsdl.verbose", false);
+        reader.setFeature("javax.wsdl.importDocuments", true);
+        return reader.readWSDL(wsdlFile.getAbsolutePath());
+    }
+
+    /**
+     * The builder changes the definition it works on, so every service is built from a
+     * definition of its own. The time of populateService is what this takes longer than
+     * readDefinition.
+     */
+    @Benchmark
+    public AxisService readAndPopulateService() throws Exception {
+        WSDL11ToAxisServiceBuilder builder = new WSDL11ToAxisServiceBuilder(
+                readDefinition(),
+                new QName(SyntheticWSDL.TARGET_NAMESPACE, SyntheticWSDL.SERVICE_NAME),
+                null);
+        builder.setCodegen(true);
+        return builder.populateService();
+    }
+}
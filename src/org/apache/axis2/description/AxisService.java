@@ -1172,6 +1172,10 @@ public class AxisService extends AxisDescription {
 	}
 
 	private void updateSchemaLocation(XmlSchema schema) {
+	    // a frozen schema may be shared with other services
+	    if (schema.isFrozen()) {
+	        return;
+	    }
 	    XmlSchemaObjectCollection includes = schema.getIncludes();
 	    for (int j = 0; j < includes.getCount(); j++) {
 	        Object item = includes.getItem(j);
@@ -2542,6 +2546,10 @@ public class AxisService extends AxisDescription {
 	 */
 	private void adjustSchemaName(XmlSchema parentSchema, Hashtable nameTable,
 			Hashtable importedScheams, Hashtable sourceURIToNewLocationMap) {
+		// a frozen schema may be shared with other services
+		if (parentSchema.isFrozen()) {
+			return;
+		}
 		XmlSchemaObjectCollection includes = parentSchema.getIncludes();
 		for (int j = 0; j < includes.getCount(); j++) {
 			Object item = includes.getItem(j);
@@ -65,6 +65,25 @@ public class WSDL11ToAllAxisServicesBuilder extends WSDL11ToAxisServiceBuilder {
     }
 
 
+    /**
+     * Sets whether the services share the schemas of the WSDL. By default each
+     * service reads the schemas again and gets a copy of its own. When they are
+     * shared the schemas are read once and added to every service; only the
+     * wrapper schemas generated for the bindings are still per service. Once a
+     * second service takes them the schemas are frozen, which builds any lazily
+     * deferred components, and since they cannot tell the services apart their
+     * import and include locations are no longer rewritten for each service.
+     *
+     * @param shareSchemas
+     */
+    public void setShareSchemas(boolean shareSchemas) {
+        this.shareSchemas = shareSchemas;
+    }
+
+    public boolean isShareSchemas() {
+        return shareSchemas;
+    }
+
     /**
      * Public method to access the wsdl 1.1 file and create a List of AxisService objects.
      * For each port on each service in the wsdl, an AxisService object is created and
@@ -44,7 +44,9 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.neethi.Constants;
 import org.apache.neethi.Policy;
 import org.apache.neethi.PolicyReference;
+import org.apache.ws.commons.schema.XmlSchema;
 import org.apache.ws.commons.schema.utils.NamespaceMap;
+import org.apache.ws.commons.schema.utils.QNamePool;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
@@ -186,6 +188,13 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
 
     private Map schemaMap = null;
 
+    /**
+     * whether the services built from the definition share one frozen copy of
+     * its schemas, and that copy once it is built
+     */
+    protected boolean shareSchemas = false;
+    private List sharedSchemas = null;
+
     private static final String JAVAX_WSDL_VERBOSE_MODE_KEY = "javax.wsdl.verbose";
 
     // As bindings are processed add it to this array so that we dont process the same binding twice
@@ -315,7 +324,7 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
             }
 
             // setting target name space
-            axisService.setTargetNamespace(wsdl4jDefinition.getTargetNamespace());
+            axisService.setTargetNamespace(QNamePool.intern(wsdl4jDefinition.getTargetNamespace()));
             axisService.setNamespaceMap(new NamespaceMap(wsdl4jDefinition.getNamespaces()));
             
             Map importsMap = wsdl4jDefinition.getImports();
@@ -400,7 +409,25 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
 
     private void processTypes(Definition wsdlDefinition, AxisService axisService)
             throws AxisFault {
-        processTypes(wsdlDefinition, axisService, new HashSet());
+        if (!shareSchemas) {
+            processTypes(wsdlDefinition, axisService, new HashSet());
+            return;
+        }
+        if (sharedSchemas == null) {
+            int schemaCount = axisService.getSchema().size();
+            processTypes(wsdlDefinition, axisService, new HashSet());
+            List schemas = axisService.getSchema();
+            sharedSchemas = new ArrayList(schemas.subList(schemaCount, schemas.size()));
+        } else {
+            // the schemas are only frozen once a second service takes them, so
+            // a single service keeps the components that are built on lookup
+            // deferred. Freezing builds them, and the services then only ever
+            // read the schemas.
+            for (Iterator iter = sharedSchemas.iterator(); iter.hasNext();) {
+                ((XmlSchema) iter.next()).freeze();
+            }
+            axisService.addSchema(sharedSchemas);
+        }
     }
 
     private void processTypes(Definition wsdlDefinition,
@@ -637,7 +664,7 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
             wsdl4jBindingOperation = (BindingOperation) iterator.next();
             wsdl4jOperation = findOperation(portType, wsdl4jBindingOperation);
 
-            axisBindingOperation.setName(new QName(bindingWSDL.getTargetNamespace(), wsdl4jBindingOperation.getName()));
+            axisBindingOperation.setName(QNamePool.getQName(bindingWSDL.getTargetNamespace(), wsdl4jBindingOperation.getName()));
             addDocumentation(axisBindingOperation, wsdl4jBindingOperation.getDocumentationElement());
 
             axisOperation = axisService.getOperation(new QName(portTypeWSDL.getTargetNamespace(), wsdl4jOperation.getName()));
@@ -1148,7 +1175,7 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
                 if ((wsdl4jMessage.getParts() != null) && (wsdl4jMessage.getParts().size() > 0)) {
                     if (wsdl4jMessage.getParts().size() == 1) {
                         Part part = (Part) wsdl4jMessage.getParts().values().iterator().next();
-                        QName elementName = part.getElementName();
+                        QName elementName = QNamePool.intern(part.getElementName());
                         if (elementName != null) {
                             message.setElementQName(elementName);
                             message.setMessagePartName(part.getName());
@@ -1179,7 +1206,7 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
                 } else if (bindingPartsList.size() == 1) {
                     Part part = wsdl4jMessage.getPart((String) bindingPartsList.get(0));
                     if (part != null) {
-                        QName elementName = part.getElementName();
+                        QName elementName = QNamePool.intern(part.getElementName());
                         if (elementName != null) {
                             message.setElementQName(elementName);
                             message.setMessagePartName(part.getName());
@@ -1234,7 +1261,7 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
         if (wsdl4jMessagePart == null) {
             throw new WSDLProcessingException();
         }
-        QName name = wsdl4jMessagePart.getElementName();
+        QName name = QNamePool.intern(wsdl4jMessagePart.getElementName());
         if (name == null) {
             String message = "Part '"
                              + wsdl4jMessagePart.getName()
@@ -1279,7 +1306,7 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
     private AxisOperation populateOperations(Operation wsdl4jOperation,
                                              PortType wsdl4jPortType, Definition dif)
             throws AxisFault {
-        QName opName = new QName(dif.getTargetNamespace(), wsdl4jOperation.getName());
+        QName opName = QNamePool.getQName(dif.getTargetNamespace(), wsdl4jOperation.getName());
         // Copy Name Attribute
         AxisOperation axisOperation = axisService.getOperation(opName);
         if (axisOperation == null) {
@@ -1641,7 +1668,7 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
                                                                    xsdPrefix);
                     newSchemaMap.put(namespaceToUse, newSchema);
                 }
-                resolvedRpcWrappedElementMap.put(boEntry.getBindingOperation().getName(), new QName(
+                resolvedRpcWrappedElementMap.put(boEntry.getBindingOperation().getName(), QNamePool.getQName(
                         namespaceToUse, boEntry.getBindingOperation().getName(), AXIS2WRAPPED));
 
             } else {
@@ -1730,7 +1757,7 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
                                                                    xsdPrefix);
                     newSchemaMap.put(namespaceToUse, newSchema);
                 }
-                resolvedRpcWrappedElementMap.put(outputOpName, new QName(
+                resolvedRpcWrappedElementMap.put(outputOpName, QNamePool.getQName(
                         namespaceToUse, outputOpName, AXIS2WRAPPED));
 
             } else {
@@ -2265,7 +2292,7 @@ public class WSDL11ToAxisServiceBuilder extends WSDLToAxisServiceBuilder {
                                 String ns = (String) wsdl4jDefinition.getNamespaces().get(prefix);
                                 if (ns != null) {
                                     Node formatType = attributes.getNamedItem("formatType");
-                                    typeMapper.put(new QName(ns, getTypeName(
+                                    typeMapper.put(QNamePool.getQName(ns, getTypeName(
                                             typeName.getNodeValue())), formatType.getNodeValue());
                                 }
 
@@ -20,10 +20,13 @@
 package org.apache.axis2.schema;
 
 import org.apache.axis2.schema.i18n.SchemaCompilerMessages;
+import org.apache.axis2.wsdl.util.CodeGenerationProfiler;
+import org.apache.axis2.wsdl.util.GeneratedFileManifest;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -204,4 +207,94 @@ public class CompilerOptions {
     public void setUseWrapperClasses(boolean useWrapperClasses) {
         this.isUseWrapperClasses = useWrapperClasses;
     }
+
+    /**
+     * The number of threads the bean writer may use to write the generated
+     * files. With more than one thread the writer builds all the models first
+     * and writes the files in parallel at the end of the compilation
+     */
+    private int writerThreadCount = 1;
+
+    public int getWriterThreadCount() {
+        return writerThreadCount;
+    }
+
+    public void setWriterThreadCount(int writerThreadCount) {
+        this.writerThreadCount = writerThreadCount;
+    }
+
+    /**
+     * Whether the writer keeps the model of every processed class for
+     * SchemaCompiler.getProcessedModelMap(). Turning this off lets the
+     * models be collected as soon as their files are written
+     */
+    private boolean keepModels = true;
+
+    public boolean isKeepModels() {
+        return keepModels;
+    }
+
+    public void setKeepModels(boolean keepModels) {
+        this.keepModels = keepModels;
+    }
+
+    /**
+     * The QNames of the global elements to generate classes for, or null for
+     * all of them. The types and elements they refer to are processed as
+     * usual; with a lazily built schema collection the other components are
+     * never built
+     */
+    private Set rootElements = null;
+
+    public Set getRootElements() {
+        return rootElements;
+    }
+
+    public void setRootElements(Set rootElements) {
+        this.rootElements = rootElements;
+    }
+
+    /**
+     * The manifest of the incremental mode. When this is set the writer
+     * skips the files whose model and template did not change
+     */
+    private GeneratedFileManifest generatedFileManifest = null;
+
+    public GeneratedFileManifest getGeneratedFileManifest() {
+        return generatedFileManifest;
+    }
+
+    public void setGeneratedFileManifest(GeneratedFileManifest generatedFileManifest) {
+        this.generatedFileManifest = generatedFileManifest;
+    }
+
+    /**
+     * Whether the caller reads the class names the compiler leaves in the
+     * meta info of the schema objects, as the unwrapping and the backward
+     * compatibility mode do. The compilation cache does not restore them, so
+     * it is not used then
+     */
+    private boolean schemaMetaInfoNeeded = false;
+
+    public boolean isSchemaMetaInfoNeeded() {
+        return schemaMetaInfoNeeded;
+    }
+
+    public void setSchemaMetaInfoNeeded(boolean schemaMetaInfoNeeded) {
+        this.schemaMetaInfoNeeded = schemaMetaInfoNeeded;
+    }
+
+    /**
+     * The profiler of the code generation run, if it is profiled. The writer
+     * records the files it writes with it
+     */
+    private CodeGenerationProfiler profiler = null;
+
+    public CodeGenerationProfiler getProfiler() {
+        return profiler;
+    }
+
+    public void setProfiler(CodeGenerationProfiler profiler) {
+        this.profiler = profiler;
+    }
 }
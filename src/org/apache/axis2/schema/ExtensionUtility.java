@@ -24,6 +24,7 @@ import org.apache.axis2.description.AxisMessage;
 import org.apache.axis2.description.AxisOperation;
 import org.apache.axis2.description.AxisService;
 import org.apache.axis2.description.Parameter;
+import org.apache.axis2.schema.i18n.SchemaCompilerMessages;
 import org.apache.axis2.schema.typemap.JavaTypeMap;
 import org.apache.axis2.schema.typemap.TypeMap;
 import org.apache.axis2.wsdl.WSDLConstants;
@@ -54,11 +55,15 @@ import org.apache.ws.commons.schema.XmlSchemaType;
 
 import javax.xml.namespace.QName;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This is the utility for the extension to call by reflection.
@@ -70,8 +75,15 @@ public class ExtensionUtility {
         List schemaList = new ArrayList();
         // add all the schemas to the list
         List services = configuration.getAxisServices();
+        // the services of a WSDL may share the same schema objects
+        Map addedSchemas = new IdentityHashMap();
         for (Iterator iter = services.iterator();iter.hasNext();){
-            schemaList.addAll(((AxisService)iter.next()).getSchema());
+            for (Iterator schemaIter = ((AxisService)iter.next()).getSchema().iterator(); schemaIter.hasNext();) {
+                Object schema = schemaIter.next();
+                if (addedSchemas.put(schema, schema) == null) {
+                    schemaList.add(schema);
+                }
+            }
         }
 
         //hashmap that keeps the targetnamespace and the xmlSchema object
@@ -98,6 +110,9 @@ public class ExtensionUtility {
         //used module specific parameters
         populateUserparameters(options, configuration);
 
+        //the processed models are only read back when the output is not written
+        options.setKeepModels(!options.isWriteOutput());
+
         SchemaCompiler schemaCompiler = new SchemaCompiler(options);
         // run the schema compiler
         schemaCompiler.compile(schemaList);
@@ -611,6 +626,20 @@ public class ExtensionUtility {
             options.setUseWrapperClasses(true);
         }
 
+        if (propertyMap.containsKey(SchemaConstants.SchemaCompilerArguments.WRITER_THREAD_COUNT)) {
+            String threadCount =
+                    (String) propertyMap.get(SchemaConstants.SchemaCompilerArguments.WRITER_THREAD_COUNT);
+            try {
+                options.setWriterThreadCount(Integer.parseInt(threadCount.trim()));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException(SchemaCompilerMessages.getMessage("schema.unsupportedvalue"));
+            }
+        }
+
+        if (propertyMap.containsKey(SchemaConstants.SchemaCompilerArguments.MESSAGE_ELEMENTS_ONLY)) {
+            options.setRootElements(getMessageElements(configuration));
+        }
+
         //set helper mode
         //this becomes effective only if the classes are unpacked
         if (!options.isWrapClasses()) {
@@ -621,13 +650,44 @@ public class ExtensionUtility {
     }
 
 
+    /**
+     * Gets the QNames of the elements the messages and faults of the services refer to
+     *
+     * @param configuration
+     * @return Returns Set.
+     */
+    private static Set getMessageElements(CodeGenConfiguration configuration) {
+        Set messageElements = new HashSet();
+        for (Iterator servicesIter = configuration.getAxisServices().iterator(); servicesIter.hasNext();) {
+            AxisService axisService = (AxisService) servicesIter.next();
+            for (Iterator operations = axisService.getOperations(); operations.hasNext();) {
+                AxisOperation axisOperation = (AxisOperation) operations.next();
+                List messages = new ArrayList();
+                for (Iterator messagesIter = axisOperation.getMessages(); messagesIter.hasNext();) {
+                    messages.add(messagesIter.next());
+                }
+                if (axisOperation.getFaultMessages() != null) {
+                    messages.addAll(axisOperation.getFaultMessages());
+                }
+                for (Iterator messagesIter = messages.iterator(); messagesIter.hasNext();) {
+                    QName elementQName = ((AxisMessage) messagesIter.next()).getElementQName();
+                    if (elementQName != null) {
+                        messageElements.add(elementQName);
+                    }
+                }
+            }
+        }
+        return messageElements;
+    }
+
     /**
      * populate the default options - called before the applying of user parameters
      *
      * @param options
      */
     private static void populateDefaultOptions(CompilerOptions options,
-                                               CodeGenConfiguration configuration) {
+                                               CodeGenConfiguration configuration)
+            throws IOException {
         //create the output directory
         File outputDir = configuration.isFlattenFiles() ?
                 configuration.getOutputLocation() :
@@ -669,6 +729,14 @@ public class ExtensionUtility {
         if (configuration.isSuppressPrefixesMode()) {
             options.setSuppressPrefixesMode(true);
         }
+
+        //share the manifest of the incremental mode with the bean writer
+        options.setGeneratedFileManifest(configuration.getGeneratedFileManifest());
+        options.setProfiler(configuration.getProfiler());
+
+        //the unwrapping and the backward compatibility mode read the class names off the schemas
+        options.setSchemaMetaInfoNeeded(!configuration.isParametersWrapped()
+                || configuration.isBackwordCompatibilityMode());
     }
 
 }
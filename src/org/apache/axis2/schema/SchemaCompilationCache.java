@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.schema;
+
+import org.apache.axis2.util.SchemaUtil;
+import org.apache.axis2.wsdl.util.GeneratedFileManifest;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ws.commons.schema.XmlSchema;
+
+import javax.xml.namespace.QName;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Remembers the result of the last compilation into an output directory for the incremental
+ * code generation. The result is keyed by a fingerprint of the compiled schemas, the compiler
+ * options and the code generator itself. When a later run compiles schemas with the same
+ * fingerprint and every file generated last time is still there as the manifest recorded it,
+ * the schema compiler takes the class names from here and skips the compilation and the
+ * write.
+ * <p/>
+ * The cache is stored as a properties file in the output directory, next to the generated
+ * files. Compilations that do not leave files in the manifest are not cached. Only the class
+ * names of the global elements and types are kept; the meta info the compiler leaves on the
+ * schema objects is not restored.
+ */
+public class SchemaCompilationCache {
+
+    private static final Log log = LogFactory.getLog(SchemaCompilationCache.class);
+
+    public static final String CACHE_FILE_NAME = ".schema-compile-cache";
+
+    // bump this when the cached content or the way the fingerprint is made changes
+    private static final String FORMAT_VERSION = "2";
+
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+    private static final String ENCODING = "UTF-8";
+
+    private static final String FINGERPRINT_KEY = "fingerprint";
+    private static final String ELEMENT_PREFIX = "element.";
+    private static final String TYPE_PREFIX = "type.";
+    private static final String FILE_PREFIX = "file.";
+
+    /** hashed in place of a set that is not given; '#' cannot start a QName */
+    private static final String NO_SET = "#none";
+
+    // the digests of the code generator jars and class directories, calculated once per process
+    private static final Map codeDigests = new HashMap();
+
+    private File cacheFile;
+    private GeneratedFileManifest manifest;
+    private Properties entries = new Properties();
+
+    // the manifest entries used before the compilation started
+    private Set entriesBefore;
+
+    /**
+     * Creates the cache of an output directory, loading the result of an earlier run if
+     * there is one.
+     *
+     * @param outputLocation the directory the schema compiler writes to
+     * @param manifest       the manifest of the generated files
+     * @throws IOException
+     */
+    public SchemaCompilationCache(File outputLocation, GeneratedFileManifest manifest)
+            throws IOException {
+        this.cacheFile = new File(outputLocation, CACHE_FILE_NAME);
+        this.manifest = manifest;
+        if (cacheFile.exists()) {
+            InputStream in = new FileInputStream(cacheFile);
+            try {
+                entries.load(in);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Calculates the fingerprint of a compilation.
+     *
+     * @param schemas the schemas passed to the compiler, in order
+     * @param options
+     * @param properties the properties of the compiler, naming the writer and its templates
+     * @return Returns String, or null if the compilation cannot be fingerprinted
+     * @throws IOException
+     */
+    public String getFingerprint(List schemas, CompilerOptions options, Map properties)
+            throws IOException {
+        MessageDigest digest = newDigest();
+        update(digest, FORMAT_VERSION);
+
+        // the code generator, which the output depends on as much as on its input
+        CodeSource codeSource = SchemaCompiler.class.getProtectionDomain().getCodeSource();
+        URL location = codeSource == null ? null : codeSource.getLocation();
+        if (location == null || !"file".equals(location.getProtocol())) {
+            return null;
+        }
+        File codeFile = new File(URLDecoder.decode(location.getPath(), ENCODING));
+        if (!codeFile.exists()) {
+            return null;
+        }
+        update(digest, location.toString());
+        update(digest, getCodeDigest(codeFile));
+        updateSorted(digest, properties);
+
+        // the options the output depends on; the thread count and the models do not matter
+        update(digest, options.getOutputLocation() == null ? null
+                : options.getOutputLocation().getAbsolutePath());
+        update(digest, options.getPackageName());
+        update(digest, options.getMapperClassPackage());
+        updateSorted(digest, options.getNs2PackageMap());
+        update(digest, String.valueOf(options.isGenerateAll()));
+        update(digest, String.valueOf(options.isWrapClasses()));
+        update(digest, String.valueOf(options.isWriteOutput()));
+        update(digest, String.valueOf(options.isBackwordCompatibilityMode()));
+        update(digest, String.valueOf(options.isSuppressPrefixesMode()));
+        update(digest, String.valueOf(options.isOffStrictValidation()));
+        update(digest, String.valueOf(options.isUseWrapperClasses()));
+        update(digest, String.valueOf(options.isHelperMode()));
+        // the message elements -Emeo limits the compilation to, if any
+        updateSorted(digest, options.getRootElements());
+
+        // the schemas, in the order they are compiled, then all the schemas they refer to
+        TreeMap allSchemas = new TreeMap();
+        for (Iterator iter = schemas.iterator(); iter.hasNext();) {
+            XmlSchema schema = (XmlSchema) iter.next();
+            updateSchema(digest, schema);
+            XmlSchema[] referenced = SchemaUtil.getAllSchemas(schema);
+            for (int i = 0; i < referenced.length; i++) {
+                allSchemas.put(referenced[i].getTargetNamespace() + ":"
+                        + referenced[i].getSourceURI(), referenced[i]);
+            }
+        }
+        for (Iterator iter = allSchemas.values().iterator(); iter.hasNext();) {
+            updateSchema(digest, (XmlSchema) iter.next());
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Replays the result of the last compilation if it had the given fingerprint and its
+     * files are unchanged.
+     *
+     * @param fingerprint
+     * @param processedElementMap the map to put the class names of the elements into
+     * @param processedTypemap    the map to put the class names of the types into
+     * @return Returns boolean, true if the result was replayed
+     */
+    public boolean replay(String fingerprint, Map processedElementMap, Map processedTypemap) {
+        if (fingerprint == null || !fingerprint.equals(entries.getProperty(FINGERPRINT_KEY))) {
+            return false;
+        }
+        boolean hasFiles = false;
+        for (Iterator iter = entries.keySet().iterator(); iter.hasNext();) {
+            String key = (String) iter.next();
+            if (key.startsWith(FILE_PREFIX)) {
+                if (!manifest.isUnchanged(entries.getProperty(key))) {
+                    return false;
+                }
+                hasFiles = true;
+            }
+        }
+        if (!hasFiles) {
+            return false;
+        }
+        for (Iterator iter = entries.keySet().iterator(); iter.hasNext();) {
+            String key = (String) iter.next();
+            if (key.startsWith(ELEMENT_PREFIX)) {
+                processedElementMap.put(QName.valueOf(key.substring(ELEMENT_PREFIX.length())),
+                                        entries.getProperty(key));
+            } else if (key.startsWith(TYPE_PREFIX)) {
+                processedTypemap.put(QName.valueOf(key.substring(TYPE_PREFIX.length())),
+                                     entries.getProperty(key));
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Reusing the schema compilation " + fingerprint);
+        }
+        return true;
+    }
+
+    /**
+     * Notes the files the manifest knows of before a compilation, so that the ones the
+     * compilation adds can be told apart.
+     */
+    public void startCompilation() {
+        entriesBefore = manifest.getUsedEntries();
+    }
+
+    /**
+     * Stores the result of a compilation, replacing the one of the last run.
+     *
+     * @param fingerprint
+     * @param processedElementMap
+     * @param processedTypemap
+     * @throws IOException
+     */
+    public void store(String fingerprint, Map processedElementMap, Map processedTypemap)
+            throws IOException {
+        Set files = manifest.getUsedEntries();
+        if (entriesBefore != null) {
+            files.removeAll(entriesBefore);
+        }
+        entries.clear();
+        if (fingerprint == null || files.isEmpty()) {
+            // nothing to check a later run against
+            cacheFile.delete();
+            return;
+        }
+        entries.setProperty(FINGERPRINT_KEY, fingerprint);
+        putNames(ELEMENT_PREFIX, processedElementMap);
+        putNames(TYPE_PREFIX, processedTypemap);
+        int index = 0;
+        for (Iterator iter = files.iterator(); iter.hasNext();) {
+            entries.setProperty(FILE_PREFIX + index++, (String) iter.next());
+        }
+        OutputStream out = new FileOutputStream(cacheFile);
+        try {
+            entries.store(out, "The result of the last schema compilation");
+        } finally {
+            out.close();
+        }
+    }
+
+    private void putNames(String prefix, Map names) {
+        for (Iterator iter = names.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            if (entry.getKey() instanceof QName && entry.getValue() instanceof String) {
+                entries.setProperty(prefix + entry.getKey(), (String) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Calculates the digest of the content of the jar or the class directory the code
+     * generator is loaded from. The modification time of a directory does not change when
+     * the files in it are rebuilt, so the content is what tells a rebuilt generator apart.
+     */
+    private static synchronized String getCodeDigest(File codeFile) throws IOException {
+        String key = codeFile.getAbsolutePath();
+        String codeDigest = (String) codeDigests.get(key);
+        if (codeDigest == null) {
+            MessageDigest digest = newDigest();
+            updateFile(digest, codeFile, "");
+            codeDigest = toHex(digest.digest());
+            codeDigests.put(key, codeDigest);
+        }
+        return codeDigest;
+    }
+
+    private static void updateFile(MessageDigest digest, File file, String path)
+            throws IOException {
+        update(digest, path);
+        if (file.isDirectory()) {
+            String[] names = file.list();
+            if (names == null) {
+                throw new IOException("Cannot list " + file);
+            }
+            Arrays.sort(names);
+            for (int i = 0; i < names.length; i++) {
+                updateFile(digest, new File(file, names[i]), path + "/" + names[i]);
+            }
+            return;
+        }
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        digest.update((byte) 0);
+    }
+
+    private void updateSchema(MessageDigest digest, XmlSchema schema)
+            throws UnsupportedEncodingException {
+        update(digest, schema.getTargetNamespace());
+        update(digest, schema.getSourceURI());
+        StringWriter writer = new StringWriter();
+        schema.write(writer);
+        update(digest, writer.toString());
+    }
+
+    private void updateSorted(MessageDigest digest, Map map)
+            throws UnsupportedEncodingException {
+        if (map == null) {
+            update(digest, null);
+            return;
+        }
+        Object[] keys = map.keySet().toArray();
+        Arrays.sort(keys, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                return String.valueOf(o1).compareTo(String.valueOf(o2));
+            }
+        });
+        for (int i = 0; i < keys.length; i++) {
+            update(digest, String.valueOf(keys[i]));
+            update(digest, String.valueOf(map.get(keys[i])));
+        }
+        update(digest, null);
+    }
+
+    private void updateSorted(MessageDigest digest, Set set)
+            throws UnsupportedEncodingException {
+        if (set == null) {
+            update(digest, NO_SET);
+            return;
+        }
+        String[] values = new String[set.size()];
+        int i = 0;
+        for (Iterator iter = set.iterator(); iter.hasNext();) {
+            values[i++] = String.valueOf(iter.next());
+        }
+        Arrays.sort(values);
+        for (i = 0; i < values.length; i++) {
+            update(digest, values[i]);
+        }
+        update(digest, null);
+    }
+
+    private static void update(MessageDigest digest, String value)
+            throws UnsupportedEncodingException {
+        if (value != null) {
+            digest.update(value.getBytes(ENCODING));
+        }
+        digest.update((byte) 0);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuffer buffer = new StringBuffer(bytes.length * 2);
+        for (int i = 0; i < bytes.length; i++) {
+            int value = bytes[i] & 0xff;
+            if (value < 0x10) {
+                buffer.append('0');
+            }
+            buffer.append(Integer.toHexString(value));
+        }
+        return buffer.toString();
+    }
+}
@@ -73,16 +73,20 @@ import org.apache.ws.commons.schema.XmlSchemaSimpleTypeList;
 import org.apache.ws.commons.schema.XmlSchemaSimpleTypeRestriction;
 import org.apache.ws.commons.schema.XmlSchemaSimpleTypeUnion;
 import org.apache.ws.commons.schema.XmlSchemaType;
+import org.apache.ws.commons.schema.utils.QNamePool;
 
 import javax.xml.namespace.QName;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Schema compiler for ADB. Based on WS-Commons schema object model.
@@ -144,6 +148,13 @@ public class SchemaCompiler {
     //are fed to the schema compiler!
     private Map availableSchemaMap = new HashMap();
 
+    // index of the global components of the schemas being compiled, built once per
+    // compilation. there is a map per component type, from the QName of the component
+    // to the schema defining it
+    private Map[] componentIndex;
+    // marks the components defined by more than one schema in the component index
+    private static final Object DUPLICATE_COMPONENT = new Object();
+
     private Map loadedSourceURI = new HashMap();
 
     // a list of externally identified QNames to be processed. This becomes
@@ -233,6 +244,18 @@ public class SchemaCompiler {
                 return;
             }
 
+            // the result of the last run is reused if nothing it depends on has changed
+            SchemaCompilationCache compilationCache = getCompilationCache();
+            String fingerprint = null;
+            if (compilationCache != null) {
+                fingerprint = compilationCache.getFingerprint(schemalist, options,
+                        getCompilerProperties());
+                if (compilationCache.replay(fingerprint, processedElementMap, processedTypemap)) {
+                    return;
+                }
+                compilationCache.startCompilation();
+            }
+
             //clear the loaded and available maps
             loadedSchemaMap.clear();
             availableSchemaMap.clear();
@@ -245,6 +268,7 @@ public class SchemaCompiler {
                         schema.getTargetNamespace(),
                         schema);
             }
+            buildComponentIndex(schemalist);
 
             //set a mapper package if not avaialable
             if (writer.getExtensionMapperPackageName() == null) {
@@ -283,6 +307,10 @@ public class SchemaCompiler {
             //finish up
             finalizeSchemaCompilation();
 
+            if (compilationCache != null) {
+                compilationCache.store(fingerprint, processedElementMap, processedTypemap);
+            }
+
         } catch (SchemaCompilationException e) {
             throw e;
         } catch (Exception e) {
@@ -290,6 +318,23 @@ public class SchemaCompiler {
         }
     }
 
+    /**
+     * Gets the cache of the compilation results, which is used in the incremental mode when
+     * the classes are written out and the caller does not read the class names off the
+     * schema objects.
+     *
+     * @return Returns SchemaCompilationCache, or null if the results are not cached
+     * @throws IOException
+     */
+    private SchemaCompilationCache getCompilationCache() throws IOException {
+        if (options.getGeneratedFileManifest() == null || !options.isWriteOutput()
+                || options.getOutputLocation() == null || options.isSchemaMetaInfoNeeded()) {
+            return null;
+        }
+        return new SchemaCompilationCache(options.getOutputLocation(),
+                options.getGeneratedFileManifest());
+    }
+
     /**
      * Compile (rather codegen) a single schema element
      *
@@ -297,6 +342,9 @@ public class SchemaCompiler {
      * @throws SchemaCompilationException
      */
     public void compile(XmlSchema schema) throws SchemaCompilationException {
+        List schemalist = new ArrayList();
+        schemalist.add(schema);
+        buildComponentIndex(schemalist);
         compile(schema, false);
     }
 
@@ -344,9 +392,8 @@ public class SchemaCompiler {
 
         XmlSchemaObjectCollection includes = schema.getIncludes();
         if (includes != null) {
-            Iterator tempIterator = includes.getIterator();
-            while (tempIterator.hasNext()) {
-                Object o = tempIterator.next();
+            for (int i = 0; i < includes.getCount(); i++) {
+                Object o = includes.getItem(i);
                 if (o instanceof XmlSchemaImport) {
                     XmlSchema schema1 = ((XmlSchemaImport) o).getSchema();
                     if (schema1 != null) compile(schema1, isPartofGroup);
@@ -361,30 +408,27 @@ public class SchemaCompiler {
         //select all the elements. We generate the code for types
         //only if the elements refer them!!! regardless of the fact that
         //we have a list of elementnames, we'll need to process all the elements
-        XmlSchemaObjectTable elements = schema.getElements();
-        Iterator xmlSchemaElement1Iterator = elements.getValues();
-        while (xmlSchemaElement1Iterator.hasNext()) {
+        List elements = getElementsToCompile(schema);
+        for (int i = 0; i < elements.size(); i++) {
             //this is the set of outer elements so we need to generate classes
             //The outermost elements do not contain occurence counts (!) so we do not need
             //to check for arraytypes
-            processElement((XmlSchemaElement) xmlSchemaElement1Iterator.next(), schema);
+            processElement((XmlSchemaElement) elements.get(i), schema);
         }
 
-        Iterator xmlSchemaElement2Iterator = elements.getValues();
-
         // re-iterate through the elements and write them one by one
         // if the mode is unpack this process will not really write the
         // classes but will accumilate the models for a final single shot
         // write
-        while (xmlSchemaElement2Iterator.hasNext()) {
+        for (int i = 0; i < elements.size(); i++) {
             //this is the set of outer elements so we need to generate classes
-            writeElement((XmlSchemaElement) xmlSchemaElement2Iterator.next());
+            writeElement((XmlSchemaElement) elements.get(i));
         }
 
         if (options.isGenerateAll()) {
-            Iterator xmlSchemaTypes2Iterator = schema.getSchemaTypes().getValues();
-            while (xmlSchemaTypes2Iterator.hasNext()) {
-                XmlSchemaType schemaType = (XmlSchemaType) xmlSchemaTypes2Iterator.next();
+            XmlSchemaObjectTable schemaTypes = schema.getSchemaTypes();
+            for (int i = 0; i < schemaTypes.getCount(); i++) {
+                XmlSchemaType schemaType = (XmlSchemaType) schemaTypes.getValue(i);
                 if (this.isAlreadyProcessed(schemaType.getQName())) {
                     continue;
                 }
@@ -409,6 +453,33 @@ public class SchemaCompiler {
         }
     }
 
+    /**
+     * Gets the global elements of a schema to generate classes for: all of
+     * them, or the root elements of the options among them.
+     *
+     * @param schema
+     * @return Returns List.
+     */
+    private List getElementsToCompile(XmlSchema schema) {
+        XmlSchemaObjectTable elements = schema.getElements();
+        List elementList = new ArrayList(elements.getCount());
+        Set rootElements = options.getRootElements();
+        if (rootElements == null) {
+            for (int i = 0; i < elements.getCount(); i++) {
+                elementList.add(elements.getValue(i));
+            }
+        } else {
+            // the names do not make a lazily built schema build its elements
+            for (Iterator iter = elements.getNames(); iter.hasNext();) {
+                QName elementQName = (QName) iter.next();
+                if (rootElements.contains(elementQName)) {
+                    elementList.add(elements.getItem(elementQName));
+                }
+            }
+        }
+        return elementList;
+    }
+
     /**
      * Completes the schema compilation process by writing the
      * mappers and the classes in a batch if needed
@@ -423,7 +494,8 @@ public class SchemaCompiler {
                                 new BeanWriterMetaInfoHolder[processedTypeMetaInfoMap.size()]));
 
 
-        if (options.isWrapClasses()) {
+        //the batch also carries the files held back for the parallel write
+        if (options.isWrapClasses() || options.getWriterThreadCount() > 1) {
             writer.writeBatch();
         }
 
@@ -806,10 +878,10 @@ public class SchemaCompiler {
      * @param parentSchema
      */
     private QName generateTypeQName(QName referenceEltQName, XmlSchema parentSchema) {
-        QName generatedTypeName = new QName(referenceEltQName.getNamespaceURI(),
+        QName generatedTypeName = QNamePool.getQName(referenceEltQName.getNamespaceURI(),
                 referenceEltQName.getLocalPart() + getNextTypeSuffix(referenceEltQName.getLocalPart()));
         while (parentSchema.getTypeByName(generatedTypeName) != null) {
-            generatedTypeName = new QName(referenceEltQName.getNamespaceURI(),
+            generatedTypeName = QNamePool.getQName(referenceEltQName.getNamespaceURI(),
                     referenceEltQName.getLocalPart() + getNextTypeSuffix(referenceEltQName.getLocalPart()));
         }
         return generatedTypeName;
@@ -1104,9 +1176,8 @@ public class SchemaCompiler {
     private void processAttributes(XmlSchemaObjectCollection attributes,
                                    BeanWriterMetaInfoHolder metaInfHolder,
                                    XmlSchema parentSchema) throws SchemaCompilationException {
-        Iterator attribIterator = attributes.getIterator();
-        while (attribIterator.hasNext()) {
-            Object o = attribIterator.next();
+        for (int i = 0; i < attributes.getCount(); i++) {
+            Object o = attributes.getItem(i);
             if (o instanceof XmlSchemaAttribute) {
                 processAttribute((XmlSchemaAttribute) o, metaInfHolder, parentSchema);
             } else if (o instanceof XmlSchemaAttributeGroupRef){
@@ -1417,9 +1488,8 @@ public class SchemaCompiler {
 
             //process attributes
             XmlSchemaObjectCollection attribs = extension.getAttributes();
-            Iterator attribIterator = attribs.getIterator();
-            while (attribIterator.hasNext()) {
-                Object attr = attribIterator.next();
+            for (int i = 0; i < attribs.getCount(); i++) {
+                Object attr = attribs.getItem(i);
                 if (attr instanceof XmlSchemaAttribute) {
                     processAttribute((XmlSchemaAttribute) attr, metaInfHolder, parentSchema);
 
@@ -1587,10 +1657,8 @@ public class SchemaCompiler {
                                XmlSchema parentSchema) {
 
         XmlSchemaObjectCollection facets = restriction.getFacets();
-        Iterator facetIterator = facets.getIterator();
-
-        while (facetIterator.hasNext()) {
-            Object obj = facetIterator.next();
+        for (int i = 0; i < facets.getCount(); i++) {
+            Object obj = facets.getItem(i);
 
             if (obj instanceof XmlSchemaPatternFacet) {
                 XmlSchemaPatternFacet pattern = (XmlSchemaPatternFacet) obj;
@@ -1796,7 +1864,7 @@ public class SchemaCompiler {
                         if (attributeSimpleType.getQName() != null) {
                             schemaTypeQName = attributeSimpleType.getQName();
                         } else {
-                            schemaTypeQName = new QName(parentSchema.getTargetNamespace(),
+                            schemaTypeQName = QNamePool.getQName(parentSchema.getTargetNamespace(),
                                     attributeQName.getLocalPart() + getNextTypeSuffix(attributeQName.getLocalPart()));
 
                         }
@@ -1849,7 +1917,7 @@ public class SchemaCompiler {
                 BeanWriterMetaInfoHolder beanWriterMetaInfoHolder = new BeanWriterMetaInfoHolder();
                 process(parentElementQName, items, beanWriterMetaInfoHolder, true, parentSchema);
                 beanWriterMetaInfoHolder.setParticleClass(true);
-                QName sequenceQName = new QName(parentElementQName.getNamespaceURI(),
+                QName sequenceQName = QNamePool.getQName(parentElementQName.getNamespaceURI(),
                          parentElementQName.getLocalPart() + "Sequence");
                 String javaClassName = writeComplexParticle(sequenceQName,beanWriterMetaInfoHolder);
                 processedTypemap.put(sequenceQName, javaClassName);
@@ -1888,7 +1956,7 @@ public class SchemaCompiler {
                 beanWriterMetaInfoHolder.setChoice(true);
                 process(parentElementQName,items, beanWriterMetaInfoHolder, false, parentSchema);
                 beanWriterMetaInfoHolder.setParticleClass(true);
-                QName choiceQName = new QName(parentElementQName.getNamespaceURI(),
+                QName choiceQName = QNamePool.getQName(parentElementQName.getNamespaceURI(),
                          parentElementQName.getLocalPart() + "Choice");
                 String javaClassName = writeComplexParticle(choiceQName,beanWriterMetaInfoHolder);
                 processedTypemap.put(choiceQName, javaClassName);
@@ -2015,7 +2083,7 @@ public class SchemaCompiler {
                     process(parentElementQName, xmlSchemaSequence.getItems(), beanWriterMetaInfoHolder, true, parentSchema);
                     beanWriterMetaInfoHolder.setParticleClass(true);
                     String localName = parentElementQName.getLocalPart() + "Sequence";
-                    QName sequenceQName = new QName(parentElementQName.getNamespaceURI(),
+                    QName sequenceQName = QNamePool.getQName(parentElementQName.getNamespaceURI(),
                             localName + getNextTypeSuffix(localName));
                     String javaClassName = writeComplexParticle(sequenceQName, beanWriterMetaInfoHolder);
                     processedTypemap.put(sequenceQName, javaClassName);
@@ -2040,7 +2108,7 @@ public class SchemaCompiler {
                     process(parentElementQName, xmlSchemaChoice.getItems(), beanWriterMetaInfoHolder, false, parentSchema);
                     beanWriterMetaInfoHolder.setParticleClass(true);
                     String localName = parentElementQName.getLocalPart() + "Choice";
-                    QName choiceQName = new QName(parentElementQName.getNamespaceURI(),
+                    QName choiceQName = QNamePool.getQName(parentElementQName.getNamespaceURI(),
                             localName + getNextTypeSuffix(localName));
                     String javaClassName = writeComplexParticle(choiceQName, beanWriterMetaInfoHolder);
                     processedTypemap.put(choiceQName, javaClassName);
@@ -2392,7 +2460,7 @@ public class SchemaCompiler {
 
             QName fakeQname;
             if (xsElt != null) {
-                fakeQname = new QName(xsElt.getQName().getNamespaceURI(), xsElt.getQName().getLocalPart() + getNextTypeSuffix(xsElt.getQName().getLocalPart()));
+                fakeQname = QNamePool.getQName(xsElt.getQName().getNamespaceURI(), xsElt.getQName().getLocalPart() + getNextTypeSuffix(xsElt.getQName().getLocalPart()));
                 // we have to set this otherwise the ours attribute would not set properly if refered to this simple
                 // type from any other element
                 xsElt.setSchemaTypeName(fakeQname);
@@ -2423,7 +2491,7 @@ public class SchemaCompiler {
             this.processedAnonymousComplexTypesMap.put(xsElt, metaInfHolder);
             QName fakeQname;
             if (xsElt != null) {
-                fakeQname = new QName(xsElt.getQName().getNamespaceURI(), xsElt.getQName().getLocalPart());
+                fakeQname = QNamePool.getQName(xsElt.getQName().getNamespaceURI(), xsElt.getQName().getLocalPart());
             } else {
                 fakeQname = qname;
                 simpleType.setName(fakeQname.getLocalPart());
@@ -2529,7 +2597,7 @@ public class SchemaCompiler {
                             childQname = unionSimpleType.getQName();
                             if (childQname == null) {
                                 // we create a fake Qname for all these simple types since most propably they don't have one
-                                childQname = new QName(parentSimpleTypeQname.getNamespaceURI(), parentSimpleTypeQname.getLocalPart() + getNextTypeSuffix(parentSimpleTypeQname.getLocalPart()));
+                                childQname = QNamePool.getQName(parentSimpleTypeQname.getNamespaceURI(), parentSimpleTypeQname.getLocalPart() + getNextTypeSuffix(parentSimpleTypeQname.getLocalPart()));
                             }
                             // this is an inner simple type of the union so it shold not have
                             // processed
@@ -2564,7 +2632,7 @@ public class SchemaCompiler {
                     itemTypeQName = listSimpleType.getQName();
                     if (itemTypeQName == null) {
                         // we create a fake Qname for all these simple types since most propably they don't have one
-                        itemTypeQName = new QName(parentSimpleTypeQname.getNamespaceURI(), parentSimpleTypeQname.getLocalPart() + "_type0");
+                        itemTypeQName = QNamePool.getQName(parentSimpleTypeQname.getNamespaceURI(), parentSimpleTypeQname.getLocalPart() + "_type0");
                     }
                     processSimpleSchemaType(listSimpleType, null, parentSchema, itemTypeQName);
 
@@ -2639,6 +2707,11 @@ public class SchemaCompiler {
             return parentSchema;
         }
 
+        XmlSchema indexedSchema = getIndexedParentSchema(componentQName, componetType);
+        if (indexedSchema != null) {
+            return indexedSchema;
+        }
+
         List visitedSchemas = new ArrayList();
         visitedSchemas.add(parentSchema);
         XmlSchema newParentSchema = getParentSchemaFromIncludes(parentSchema,
@@ -2653,7 +2726,7 @@ public class SchemaCompiler {
             } else if (availableSchemaMap.containsKey(targetNamespace)){
                 XmlSchema tempSchema = (XmlSchema) availableSchemaMap.get(targetNamespace);
                 if (isComponetExists(tempSchema,componentQName,componetType)){
-                    compile(tempSchema);
+                    compile(tempSchema, false);
                     newParentSchema = tempSchema;
                 }
             }
@@ -2661,6 +2734,85 @@ public class SchemaCompiler {
         return newParentSchema;
     }
 
+    /**
+     * returns the schema defining the given componet according to the component index.
+     * components defined more than once, or not in the index, are left to the walk of the
+     * imports and includes.
+     * @param componentQName - qname of the componet
+     * @param componetType - type of the componet
+     * @return the defining schema or null
+     */
+    private XmlSchema getIndexedParentSchema(QName componentQName,
+                                             int componetType) throws SchemaCompilationException {
+        if (componentIndex == null) {
+            return null;
+        }
+        Object indexedSchema = componentIndex[componetType].get(componentQName);
+        if (!(indexedSchema instanceof XmlSchema)) {
+            return null;
+        }
+        XmlSchema schema = (XmlSchema) indexedSchema;
+        // a schema given to the compiler which has not been compiled yet
+        // is compiled before its componets are used, as the walk does
+        String targetNamespace = schema.getTargetNamespace();
+        if (!loadedSchemaMap.containsKey(targetNamespace)
+                && availableSchemaMap.get(targetNamespace) == schema) {
+            compile(schema, false);
+        }
+        return schema;
+    }
+
+    /**
+     * builds the component index from the given schemas and all the schemas they
+     * import or include
+     * @param schemalist
+     */
+    private void buildComponentIndex(List schemalist) {
+        componentIndex = new Map[COMPONENT_GROUP + 1];
+        for (int i = COMPONENT_TYPE; i <= COMPONENT_GROUP; i++) {
+            componentIndex[i] = new HashMap();
+        }
+        Map indexedSchemas = new IdentityHashMap();
+        for (int i = 0; i < schemalist.size(); i++) {
+            XmlSchema schema = (XmlSchema) schemalist.get(i);
+            indexComponents(schema, indexedSchemas);
+            XmlSchema[] schemas = SchemaUtil.getAllSchemas(schema);
+            for (int j = 0; j < schemas.length; j++) {
+                indexComponents(schemas[j], indexedSchemas);
+            }
+        }
+    }
+
+    private void indexComponents(XmlSchema schema, Map indexedSchemas) {
+        if (indexedSchemas.containsKey(schema)) {
+            return;
+        }
+        indexedSchemas.put(schema, schema);
+        indexComponents(schema, COMPONENT_TYPE, schema.getSchemaTypes());
+        indexComponents(schema, COMPONENT_ELEMENT, schema.getElements());
+        indexComponents(schema, COMPONENT_ATTRIBUTE, schema.getAttributes());
+        indexComponents(schema, COMPONENT_ATTRIBUTE_GROUP, schema.getAttributeGroups());
+        indexComponents(schema, COMPONENT_GROUP, schema.getGroups());
+    }
+
+    private void indexComponents(XmlSchema schema, int componetType, XmlSchemaObjectTable table) {
+        // as in isComponetExists, a schema only defines the componets of its target namespace
+        String targetNamespace = schema.getTargetNamespace();
+        Map index = componentIndex[componetType];
+        // the names do not make a lazily built schema build its components
+        for (Iterator iter = table.getNames(); iter.hasNext();) {
+            QName componentQName = (QName) iter.next();
+            if (targetNamespace.equals(componentQName.getNamespaceURI())) {
+                Object indexedSchema = index.get(componentQName);
+                if (indexedSchema == null) {
+                    index.put(componentQName, schema);
+                } else if (indexedSchema != schema) {
+                    index.put(componentQName, DUPLICATE_COMPONENT);
+                }
+            }
+        }
+    }
+
     private XmlSchema getParentSchemaFromIncludes(XmlSchema parentSchema,
                                                   QName componentQName,
                                                   int componetType,
@@ -2675,8 +2827,8 @@ public class SchemaCompiler {
             if (includes != null) {
                 Object externalComponet = null;
                 XmlSchema externalSchema = null;
-                for (Iterator iter = includes.getIterator(); iter.hasNext();) {
-                    externalComponet = iter.next();
+                for (int i = 0; i < includes.getCount(); i++) {
+                    externalComponet = includes.getItem(i);
                     if (externalComponet instanceof XmlSchemaExternal) {
                         externalSchema = ((XmlSchemaExternal) externalComponet).getSchema();
 
@@ -2692,7 +2844,7 @@ public class SchemaCompiler {
                                     externalSchema = (XmlSchema) loadedSchemaMap.get(importNamespce);
                                 } else if (availableSchemaMap.containsKey(importNamespce)) {
                                     XmlSchema tempSchema = (XmlSchema) availableSchemaMap.get(importNamespce);
-                                    compile(tempSchema);
+                                    compile(tempSchema, false);
                                     externalSchema = tempSchema;
                                 }
                             }
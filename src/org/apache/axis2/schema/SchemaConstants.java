@@ -166,6 +166,10 @@ public class SchemaConstants {
         public static final String OFF_STRICT_VALIDATION = "osv";
         // this option is used to use Wrapper classes for primitives
         public static final String USE_WRAPPER_CLASSES = "uwc";
+        // this option is used to set the number of threads writing the generated files
+        public static final String WRITER_THREAD_COUNT = "wtc";
+        // this option is used to generate classes only for the elements of the messages
+        public static final String MESSAGE_ELEMENTS_ONLY = "meo";
 
     }
 
@@ -31,7 +31,7 @@ import java.util.Properties;
  */
 public class SchemaPropertyLoader {
     private static String beanTemplate = null;
-    private static BeanWriter beanWriterInstance = null;
+    private static Class beanWriterClass = null;
     private static TypeMap typeMapperInstance = null;
     private static Properties propertyMap;
 
@@ -52,7 +52,9 @@ public class SchemaPropertyLoader {
 
             String beanWriterClassName = props.getProperty(SchemaConstants.SchemaPropertyNames.BEAN_WRITER_KEY);
             if (beanWriterClassName != null) {
-                beanWriterInstance = (BeanWriter) Class.forName(beanWriterClassName).newInstance();
+                beanWriterClass = Class.forName(beanWriterClassName);
+                //make sure the writer can be instantiated
+                getBeanWriterInstance();
             }
 
             String typeMapperClassName = props.getProperty(SchemaConstants.SchemaPropertyNames.BEAN_WRITER_TYPEMAP_KEY);
@@ -83,8 +85,20 @@ public class SchemaPropertyLoader {
         return beanTemplate;
     }
 
+    /**
+     * Gets a new instance of the configured bean writer. The writers keep the state of the
+     * compilation they belong to, so every schema compiler gets its own.
+     * @return Returns BeanWriter.
+     */
     public static BeanWriter getBeanWriterInstance() {
-        return beanWriterInstance;
+        if (beanWriterClass == null) {
+            return null;
+        }
+        try {
+            return (BeanWriter) beanWriterClass.newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
     }
 
     public static TypeMap getTypeMapperInstance() {
@@ -46,7 +46,9 @@ public interface BeanWriter {
 
     /**
      * Writes a wrapped class. This will have effect only if the CompilerOptions wrapclassses
-     * returns true.
+     * returns true. Writers that defer writing the individual classes (for instance to write
+     * them in parallel when the CompilerOptions writer thread count is more than one) write
+     * them here as well.
      */
     public void writeBatch() throws SchemaCompilationException;
 
@@ -19,6 +19,11 @@
 
 package org.apache.axis2.schema.writer;
 
+import edu.emory.mathcs.backport.java.util.concurrent.Callable;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutionException;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutorService;
+import edu.emory.mathcs.backport.java.util.concurrent.Executors;
+import edu.emory.mathcs.backport.java.util.concurrent.Future;
 import org.apache.axis2.schema.BeanWriterMetaInfoHolder;
 import org.apache.axis2.schema.CompilerOptions;
 import org.apache.axis2.schema.SchemaCompilationException;
@@ -32,6 +37,9 @@ import org.apache.axis2.util.JavaUtils;
 import org.apache.axis2.util.XSLTTemplateProcessor;
 import org.apache.axis2.util.XSLTUtils;
 import org.apache.axis2.wsdl.databinding.CUtils;
+import org.apache.axis2.wsdl.util.CodeGenerationProfiler;
+import org.apache.axis2.wsdl.util.GeneratedFileManifest;
+import org.apache.axis2.wsdl.util.XSLTTemplateCache;
 import org.apache.ws.commons.schema.XmlSchemaElement;
 import org.apache.ws.commons.schema.XmlSchemaSimpleType;
 import org.w3c.dom.Document;
@@ -40,13 +48,11 @@ import org.w3c.dom.Element;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.stream.StreamSource;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -61,22 +67,40 @@ public class CStructWriter implements BeanWriter {
 
     public static final String WRAPPED_DATABINDING_CLASS_NAME = "WrappedDatabinder";
     public static final String AXIS2_PREFIX = "adb_";
+    private static final String C_LANGUAGE = "c";
     private String javaBeanTemplateName = null;
     private boolean templateLoaded = false;
     private Templates sourceTemplateCache;
     private Templates headerTemplateCache;
+    private String sourceTemplateName;
+    private String headerTemplateName;
+
+    // the manifest of the incremental mode, null if every file is written
+    private GeneratedFileManifest manifest;
+
+    // collects the time taken by every write for the profile report, null if not profiled
+    private CodeGenerationProfiler profiler;
 
     private List namesList;
-    private static int count = 0;
+    // numbers the clashing names of this compilation only, so a job gives the same names
+    // whatever else runs in the JVM
+    private int count = 0;
     private boolean wrapClasses = false;
     private boolean writeClasses = false;
 
     protected File rootDir;
 
-    private Document globalWrappedSourceDocument;
-    private Document globalWrappedHeaderDocument;
+    // the source and the header templates share the same model
+    private Document globalWrappedDocument;
 
     private Map modelMap = new HashMap();
+    private boolean keepModels = true;
+
+    // the files held back for the parallel write, in the order they were generated
+    private int writerThreadCount = 1;
+    private List pendingFiles = new ArrayList();
+    private Map pendingFileMap = new HashMap();
+
     private static final String DEFAULT_PACKAGE = "adb";
     private static final String DEFAULT_C_CLASS_NAME = "axiom_node_t*";
 
@@ -104,6 +128,7 @@ public class CStructWriter implements BeanWriter {
      * This returns a map of Qnames vs DOMDocument models. One can use this method to
      * obtain the raw DOMmodels used to write the classes.
      * This has no meaning when the classes are supposed to be wrapped  so the
+     * The map stays empty when the options turn off keeping the models
      *
      * @return Returns Map.
      * @see BeanWriter#getModelMap()
@@ -137,19 +162,18 @@ public class CStructWriter implements BeanWriter {
             } else {
                 wrapClasses = options.isWrapClasses();
             }
+            writerThreadCount = options.getWriterThreadCount();
+            manifest = options.getGeneratedFileManifest();
+            profiler = options.getProfiler();
+            keepModels = options.isKeepModels();
 
             //if the wrap mode is set then create a global document to keep the wrapped
             //element models
             if (options.isWrapClasses()) {
-                globalWrappedSourceDocument = XSLTUtils.getDocument();
-                Element rootElement = XSLTUtils.getElement(globalWrappedSourceDocument, "beans");
-                globalWrappedSourceDocument.appendChild(rootElement);
-                XSLTUtils.addAttribute(globalWrappedSourceDocument, "name", CStructWriter.WRAPPED_DATABINDING_CLASS_NAME, rootElement);
-
-                globalWrappedHeaderDocument = XSLTUtils.getDocument();
-                rootElement = XSLTUtils.getElement(globalWrappedHeaderDocument, "beans");
-                globalWrappedHeaderDocument.appendChild(rootElement);
-                XSLTUtils.addAttribute(globalWrappedHeaderDocument, "name", CStructWriter.WRAPPED_DATABINDING_CLASS_NAME, rootElement);
+                globalWrappedDocument = XSLTUtils.getDocument();
+                Element rootElement = XSLTUtils.getElement(globalWrappedDocument, "beans");
+                globalWrappedDocument.appendChild(rootElement);
+                XSLTUtils.addAttribute(globalWrappedDocument, "name", CStructWriter.WRAPPED_DATABINDING_CLASS_NAME, rootElement);
 
             }
 
@@ -220,13 +244,16 @@ public class CStructWriter implements BeanWriter {
      */
     public void writeBatch() throws SchemaCompilationException {
         try {
+            if (!pendingFiles.isEmpty()) {
+                writePendingFiles();
+            }
             if (wrapClasses) {
 
                 File outSource = createOutFile(CStructWriter.WRAPPED_DATABINDING_CLASS_NAME, ".c");
                 File outHeader = createOutFile(CStructWriter.WRAPPED_DATABINDING_CLASS_NAME, ".h");
                 //parse with the template and create the files
-                parseSource(globalWrappedSourceDocument, outSource);
-                parseHeader(globalWrappedHeaderDocument, outHeader);
+                parseSource(globalWrappedDocument, outSource);
+                parseHeader(globalWrappedDocument, outHeader);
             }
         } catch (Exception e) {
             throw new SchemaCompilationException(e);
@@ -328,26 +355,19 @@ public class CStructWriter implements BeanWriter {
 
         //if wrapped then do not write the classes now but add the models to a global document. However in order to write the
         //global class that is generated, one needs to call the writeBatch() method
+        //the source and the header templates only read the model, so a single
+        //model is built and shared by both of them
         if (wrapClasses) {
-            globalWrappedSourceDocument.getDocumentElement().appendChild(
-                    getBeanElement(globalWrappedSourceDocument, className,
-                        originalName, qName, isElement, isAbstract, 
-                        metainf, propertyNames, typeMap, groupTypeMap));
-
-            globalWrappedHeaderDocument.getDocumentElement().appendChild(
-                    getBeanElement(globalWrappedHeaderDocument, className,
+            globalWrappedDocument.getDocumentElement().appendChild(
+                    getBeanElement(globalWrappedDocument, className,
                         originalName, qName, isElement, isAbstract, 
                         metainf, propertyNames, typeMap, groupTypeMap));
 
         } else {
             //create the model
-            Document modelSource = XSLTUtils.getDocument();
-            Document modelHeader = XSLTUtils.getDocument();
+            Document model = XSLTUtils.getDocument();
             //make the XML
-            modelSource.appendChild(getBeanElement(modelSource, className, originalName,
-                    qName, isElement, isAbstract, metainf, propertyNames,
-                    typeMap, groupTypeMap));
-            modelHeader.appendChild(getBeanElement(modelHeader, className, originalName,
+            model.appendChild(getBeanElement(model, className, originalName,
                     qName, isElement, isAbstract, metainf, propertyNames,
                     typeMap, groupTypeMap));
 
@@ -356,17 +376,21 @@ public class CStructWriter implements BeanWriter {
                 File outSource = createOutFile(className, ".c");
                 File outHeader = createOutFile(className, ".h");
                 //parse with the template and create the files
-                parseSource(modelSource, outSource);
-                parseHeader(modelHeader, outHeader);
+                if (writerThreadCount > 1) {
+                    //the files are written in parallel once all the models are built
+                    addPendingModel(model, outSource, outHeader);
+                } else {
+                    parseSource(model, outSource);
+                    parseHeader(model, outHeader);
+                }
             }
 
             //add the model to the model map
-            modelMap.put(
-                    new QName(qName.getNamespaceURI(), className)
-                    , modelSource);
-            modelMap.put(
-                    new QName(qName.getNamespaceURI(), className)
-                    , modelHeader);
+            if (keepModels) {
+                modelMap.put(
+                        new QName(qName.getNamespaceURI(), className)
+                        , model);
+            }
 
             /////////////////////////////////////////////////////
             // System.out.println(DOM2Writer.nodeToString(modelSource.getFirstChild()));
@@ -994,7 +1018,7 @@ public class CStructWriter implements BeanWriter {
         }
 
         while (listOfNames.contains(cName.toLowerCase())) {
-            cName = cName + CStructWriter.count++;
+            cName = cName + count++;
         }
 
         String intName = cName.replace('.','_');
@@ -1011,19 +1035,15 @@ public class CStructWriter implements BeanWriter {
      */
     private void loadTemplate() throws SchemaCompilationException {
 
-        //first get the language specific property map
-        Class clazz = this.getClass();
-        InputStream xslStream;
+        //the compiled templates are shared with the other writers through the template cache
         String templateName = javaBeanTemplateName;
         if (templateName != null) {
             try {
-                String sourceTemplateName = templateName + "Source.xsl";
-                xslStream = clazz.getResourceAsStream(sourceTemplateName);
-                sourceTemplateCache = TransformerFactory.newInstance().newTemplates(new StreamSource(xslStream));
+                sourceTemplateName = templateName + "Source.xsl";
+                sourceTemplateCache = XSLTTemplateCache.getTemplates(C_LANGUAGE, sourceTemplateName, null);
 
-                String headerTemplateName = templateName + "Header.xsl";
-                xslStream = clazz.getResourceAsStream(headerTemplateName);
-                headerTemplateCache = TransformerFactory.newInstance().newTemplates(new StreamSource(xslStream));
+                headerTemplateName = templateName + "Header.xsl";
+                headerTemplateCache = XSLTTemplateCache.getTemplates(C_LANGUAGE, headerTemplateName, null);
 
                 templateLoaded = true;
             } catch (TransformerConfigurationException e) {
@@ -1057,15 +1077,7 @@ public class CStructWriter implements BeanWriter {
      * @throws Exception
      */
     private void parseSource(Document doc, File outputFile) throws Exception {
-        OutputStream outStream = new FileOutputStream(outputFile);
-        XSLTTemplateProcessor.parse(outStream,
-                doc,
-                this.sourceTemplateCache.newTransformer());
-        outStream.write('\n');
-        outStream.write('\n');
-        outStream.flush();
-        outStream.close();
-
+        writeFile(doc, outputFile, sourceTemplateName, this.sourceTemplateCache.newTransformer());
     }
 
     /**
@@ -1076,15 +1088,137 @@ public class CStructWriter implements BeanWriter {
      * @throws Exception
      */
     private void parseHeader(Document doc, File outputFile) throws Exception {
+        writeFile(doc, outputFile, headerTemplateName, this.headerTemplateCache.newTransformer());
+    }
+
+    /**
+     * Writes the output file with the given transformer. In the incremental mode the file is
+     * left alone if it was generated from the same model and template before
+     *
+     * @param doc
+     * @param outputFile
+     * @param templateName
+     * @param transformer
+     * @throws Exception
+     */
+    private void writeFile(Document doc, File outputFile, String templateName,
+                           Transformer transformer) throws Exception {
+        String modelHash = null;
+        if (manifest != null) {
+            modelHash = manifest.getHash(doc, templateName, C_LANGUAGE);
+            if (manifest.isUpToDate(outputFile, modelHash)) {
+                return;
+            }
+        }
+
+        long start = System.currentTimeMillis();
         OutputStream outStream = new FileOutputStream(outputFile);
         XSLTTemplateProcessor.parse(outStream,
                 doc,
-                this.headerTemplateCache.newTransformer());
+                transformer);
         outStream.write('\n');
         outStream.write('\n');
         outStream.flush();
         outStream.close();
 
+        if (manifest != null) {
+            manifest.record(outputFile, modelHash);
+        }
+        if (profiler != null) {
+            profiler.recordWrite(getClass().getName(), templateName, outputFile,
+                                 System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Holds back the files of a model to be written by writePendingFiles(). A later model for
+     * the same files replaces the earlier one, the same way a later write would overwrite them
+     *
+     * @param doc
+     * @param sourceFile
+     * @param headerFile
+     */
+    private void addPendingModel(Document doc, File sourceFile, File headerFile) {
+        PendingModel pendingModel = (PendingModel) pendingFileMap.get(sourceFile);
+        if (pendingModel == null) {
+            pendingModel = new PendingModel(sourceFile, headerFile);
+            pendingFileMap.put(sourceFile, pendingModel);
+            pendingFiles.add(pendingModel);
+        }
+        pendingModel.model = doc;
+    }
+
+    /**
+     * Writes all the held back files using a pool of writerThreadCount threads. Every thread
+     * uses its own transformers and both files of a model are written by the same thread, so
+     * no model is read concurrently and the output is the same as when the files are written
+     * one by one
+     *
+     * @throws Exception
+     */
+    private void writePendingFiles() throws Exception {
+        int threadCount = Math.min(writerThreadCount, pendingFiles.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List futures = new ArrayList();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(new PendingFileWriter(i, threadCount)));
+            }
+            for (Iterator iter = futures.iterator(); iter.hasNext();) {
+                try {
+                    ((Future) iter.next()).get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdown();
+            pendingFiles.clear();
+            pendingFileMap.clear();
+        }
+    }
+
+    /**
+     * A model held back for the parallel write, with its source and header files
+     */
+    private static class PendingModel {
+        private File sourceFile;
+        private File headerFile;
+        private Document model;
+
+        PendingModel(File sourceFile, File headerFile) {
+            this.sourceFile = sourceFile;
+            this.headerFile = headerFile;
+        }
+    }
+
+    /**
+     * Writes the files of every stride'th pending model starting from the given offset
+     */
+    private class PendingFileWriter implements Callable {
+        private int offset;
+        private int stride;
+
+        PendingFileWriter(int offset, int stride) {
+            this.offset = offset;
+            this.stride = stride;
+        }
+
+        public Object call() throws Exception {
+            Transformer sourceTransformer = sourceTemplateCache.newTransformer();
+            Transformer headerTransformer = headerTemplateCache.newTransformer();
+            for (int i = offset; i < pendingFiles.size(); i += stride) {
+                PendingModel pendingModel = (PendingModel) pendingFiles.get(i);
+                writeFile(pendingModel.model, pendingModel.sourceFile,
+                        sourceTemplateName, sourceTransformer);
+                writeFile(pendingModel.model, pendingModel.headerFile,
+                        headerTemplateName, headerTransformer);
+            }
+            return null;
+        }
     }
 
     /**
@@ -81,7 +81,9 @@ public class JavaBeanWriter implements BeanWriter {
 
     private Map packageNameToClassNamesMap;
 
-    private static int count = 0;
+    // numbers the clashing names of this compilation only, so a job gives the same names
+    // whatever else runs in the JVM
+    private int count = 0;
 
     private boolean wrapClasses = false;
 
@@ -86,6 +86,14 @@ public interface CommandLineOptionConstants {
         String SKELTON_INTERFACE_NAME_OPTION_LONG = "skelton-interface-name";
         String SKELTON_CLASS_NAME_OPTION = "scn";
         String SKELTON_CLASS_NAME_OPTION_LONG = "skelton-class-name";
+        String INCREMENTAL_OPTION = "inc";
+        String INCREMENTAL_OPTION_LONG = "incremental";
+        String STREAMING_MODEL_OPTION = "sm";
+        String STREAMING_MODEL_OPTION_LONG = "streaming-model";
+        String EMITTER_THREADS_OPTION = "et";
+        String EMITTER_THREADS_OPTION_LONG = "emitter-threads";
+        String PROFILE_OPTION = "prof";
+        String PROFILE_OPTION_LONG = "profile";
 
         String INVALID_OPTION = "INVALID_OPTION";
         String EXTRA_OPTIONTYPE_PREFIX = "E";
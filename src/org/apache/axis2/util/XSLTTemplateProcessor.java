@@ -75,7 +75,25 @@ public class XSLTTemplateProcessor {
                              Document doc,
                              Transformer transformer)
             throws TransformerFactoryConfigurationError, TransformerException {
-        Source xmlSource = new DOMSource(doc);
+        parse(out, new DOMSource(doc), transformer);
+
+    }
+
+    /**
+     * Parses a model with a transformer. The model can be given as any kind of source,
+     * e.g. a SAXSource that produces the model as it is read
+     *
+     * @param out         Stream to write the output
+     * @param xmlSource
+     * @param transformer
+     * @throws TransformerFactoryConfigurationError
+     *
+     * @throws TransformerException
+     */
+    public static void parse(OutputStream out,
+                             Source xmlSource,
+                             Transformer transformer)
+            throws TransformerFactoryConfigurationError, TransformerException {
         Result result = new StreamResult(out);
         transformer.transform(xmlSource, result);
 
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl;
+
+import edu.emory.mathcs.backport.java.util.concurrent.Callable;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutorService;
+import edu.emory.mathcs.backport.java.util.concurrent.Executors;
+import edu.emory.mathcs.backport.java.util.concurrent.Future;
+import org.apache.axis2.util.CommandLineOption;
+import org.apache.axis2.util.CommandLineOptionConstants;
+import org.apache.axis2.util.CommandLineOptionParser;
+import org.apache.axis2.wsdl.codegen.CodeGenerationEngine;
+import org.apache.axis2.wsdl.i18n.CodegenMessages;
+import org.apache.axis2.wsdl.util.WSDL2JavaOptionsValidator;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs many code generations in one JVM. The job file lists the WSDL2Code options of one run
+ * per line; empty lines and lines starting with # are skipped. The jobs run on a bounded pool
+ * of threads and share everything that is cached process wide, i.e. the configuration, the
+ * compiled templates and the parsed third party schemas. The time taken by every job is
+ * reported once all of them are done.
+ */
+public class WSDL2CodeBatch {
+
+    private static final String THREADS_OPTION = "-threads";
+    private static final String COMMENT_PREFIX = "#";
+
+    public static void main(String[] args) throws Exception {
+        run(args, new String[0]);
+    }
+
+    /**
+     * Runs the jobs listed in the job file named in the arguments.
+     *
+     * @param args      the batch arguments
+     * @param extraArgs options added to the options of every job
+     * @throws Exception
+     */
+    static void run(String[] args, String[] extraArgs) throws Exception {
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        String jobFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (THREADS_OPTION.equals(args[i]) && i + 1 < args.length) {
+                try {
+                    threadCount = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    printUsage();
+                }
+            } else if (jobFile == null) {
+                jobFile = args[i];
+            } else {
+                printUsage();
+            }
+        }
+        if (jobFile == null || threadCount < 1) {
+            printUsage();
+        }
+
+        List jobs = readJobs(jobFile, extraArgs);
+        long start = System.currentTimeMillis();
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, jobs.size())));
+        try {
+            List futures = new ArrayList();
+            for (int i = 0; i < jobs.size(); i++) {
+                futures.add(executor.submit((Job)jobs.get(i)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                ((Future)futures.get(i)).get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long time = System.currentTimeMillis() - start;
+
+        int failed = 0;
+        for (int i = 0; i < jobs.size(); i++) {
+            Job job = (Job)jobs.get(i);
+            System.out.println(job.getReport());
+            if (job.failure != null) {
+                failed++;
+            }
+        }
+        System.out.println(CodegenMessages.getMessage("wsdl2code.batch.summary",
+                                                      String.valueOf(jobs.size()),
+                                                      String.valueOf(failed),
+                                                      String.valueOf(threadCount),
+                                                      String.valueOf(time)));
+        if (failed > 0) {
+            System.exit(1);//$NON-SEC-2
+        }
+    }
+
+    private static List readJobs(String jobFile, String[] extraArgs) throws IOException {
+        List jobs = new ArrayList();
+        BufferedReader reader = new BufferedReader(new FileReader(jobFile));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith(COMMENT_PREFIX)) {
+                    continue;
+                }
+                List jobArgs = splitArguments(line);
+                for (int i = 0; i < extraArgs.length; i++) {
+                    jobArgs.add(extraArgs[i]);
+                }
+                jobs.add(new Job(lineNumber, (String[])jobArgs.toArray(new String[jobArgs.size()])));
+            }
+        } finally {
+            reader.close();
+        }
+        return jobs;
+    }
+
+    /** Splits a line of options at the white space, keeping double quoted values together. */
+    private static List splitArguments(String line) {
+        List args = new ArrayList();
+        StringBuffer arg = new StringBuffer();
+        boolean quoted = false;
+        boolean inArg = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inArg = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inArg) {
+                    args.add(arg.toString());
+                    arg.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                arg.append(c);
+                inArg = true;
+            }
+        }
+        if (inArg) {
+            args.add(arg.toString());
+        }
+        return args;
+    }
+
+    private static void printUsage() {
+        System.out.println(CodegenMessages.getMessage("wsdl2code.batch.usage"));
+        System.exit(0);//$NON-SEC-2
+    }
+
+    /** One code generation run of the batch */
+    private static class Job implements Callable {
+
+        private int lineNumber;
+        private String[] args;
+        private String wsdlUri;
+        private long loadTime;
+        private long generateTime;
+        private long totalTime;
+        private Throwable failure;
+
+        Job(int lineNumber, String[] args) {
+            this.lineNumber = lineNumber;
+            this.args = args;
+        }
+
+        public Object call() {
+            long start = System.currentTimeMillis();
+            try {
+                CommandLineOptionParser parser = new CommandLineOptionParser(args);
+                CommandLineOption uriOption = (CommandLineOption)parser.getAllOptions().get(
+                        CommandLineOptionConstants.WSDL2JavaConstants.WSDL_LOCATION_URI_OPTION);
+                if (uriOption != null) {
+                    wsdlUri = uriOption.getOptionValue();
+                }
+                if (uriOption == null ||
+                        parser.getInvalidOptions(new WSDL2JavaOptionsValidator()).size() > 0) {
+                    throw new IllegalArgumentException(
+                            CodegenMessages.getMessage("wsdl2code.batch.invalidOptions"));
+                }
+
+                CodeGenerationEngine engine = new CodeGenerationEngine(parser);
+                loadTime = System.currentTimeMillis() - start;
+                engine.generate();
+                generateTime = System.currentTimeMillis() - start - loadTime;
+            } catch (Throwable t) {
+                // an Error, e.g. from a missing databinding jar, fails this job only
+                failure = t;
+            }
+            totalTime = System.currentTimeMillis() - start;
+            return null;
+        }
+
+        String getReport() {
+            String job = String.valueOf(lineNumber);
+            String name = wsdlUri == null ? "" : wsdlUri;
+            if (failure != null) {
+                return CodegenMessages.getMessage("wsdl2code.batch.jobFailed", job, name,
+                                                  String.valueOf(totalTime),
+                                                  String.valueOf(failure));
+            }
+            return CodegenMessages.getMessage("wsdl2code.batch.jobDone", job, name,
+                                              String.valueOf(loadTime),
+                                              String.valueOf(generateTime));
+        }
+    }
+}
@@ -23,10 +23,15 @@ import org.apache.axis2.description.AxisService;
 import org.apache.axis2.util.CommandLineOptionConstants;
 import org.apache.axis2.util.URLProcessor;
 import org.apache.axis2.wsdl.databinding.TypeMapper;
+import org.apache.axis2.wsdl.util.CachingWSDLLocator;
+import org.apache.axis2.wsdl.util.CodeGenerationProfiler;
 import org.apache.axis2.wsdl.util.ConfigPropertyFileLoader;
+import org.apache.axis2.wsdl.util.GeneratedFileManifest;
 
 import javax.wsdl.Definition;
+import javax.wsdl.WSDLException;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -533,11 +538,31 @@ public class CodeGenConfiguration implements CommandLineOptionConstants {
 
     /** keep this wsdl definition to write the wsdl file later */
     private Definition wsdlDefinition;
+    private CachingWSDLLocator wsdlDefinitionLocator;
 
     public Definition getWsdlDefinition() {
+        if (wsdlDefinition == null && wsdlDefinitionLocator != null) {
+            try {
+                wsdlDefinition = wsdlDefinitionLocator.readDefinition();
+            } catch (WSDLException e) {
+                throw new RuntimeException(e);
+            }
+            wsdlDefinitionLocator = null;
+        }
         return wsdlDefinition;
     }
 
+    /**
+     * Sets the locator the wsdl definition is read from when it is first asked for. The
+     * builders change the definition they work on, so the one written out later has to be
+     * a separate copy, but only some emitters ever write it.
+     *
+     * @param wsdlDefinitionLocator
+     */
+    public void setWsdlDefinitionLocator(CachingWSDLLocator wsdlDefinitionLocator) {
+        this.wsdlDefinitionLocator = wsdlDefinitionLocator;
+    }
+
     public void setWsdlDefinition(Definition wsdlDefinition) {
         this.wsdlDefinition = wsdlDefinition;
     }
@@ -562,6 +587,65 @@ public class CodeGenConfiguration implements CommandLineOptionConstants {
         isOverride = override;
     }
 
+    // incremental mode - files whose model and template did not change are not rewritten
+    private boolean isIncremental;
+    private GeneratedFileManifest generatedFileManifest;
+
+    public boolean isIncremental() {
+        return isIncremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        isIncremental = incremental;
+    }
+
+    /**
+     * Gets the manifest of the files generated into the output location. This is only
+     * available in the incremental mode.
+     *
+     * @return Returns GeneratedFileManifest, or null if the incremental mode is off.
+     * @throws IOException
+     */
+    public GeneratedFileManifest getGeneratedFileManifest() throws IOException {
+        if (isIncremental && generatedFileManifest == null) {
+            generatedFileManifest = new GeneratedFileManifest(outputLocation);
+        }
+        return generatedFileManifest;
+    }
+
+    // streaming model - the emitters feed the bulk of the model to the templates as events
+    private boolean isStreamingModel;
+
+    public boolean isStreamingModel() {
+        return isStreamingModel;
+    }
+
+    public void setStreamingModel(boolean streamingModel) {
+        isStreamingModel = streamingModel;
+    }
+
+    // the number of threads the emitters run the templates on, 1 writes every file in turn
+    private int emitterThreadCount = 1;
+
+    public int getEmitterThreadCount() {
+        return emitterThreadCount;
+    }
+
+    public void setEmitterThreadCount(int emitterThreadCount) {
+        this.emitterThreadCount = emitterThreadCount;
+    }
+
+    // collects the timings of the run for the profile report, null if not asked for
+    private CodeGenerationProfiler profiler;
+
+    public CodeGenerationProfiler getProfiler() {
+        return profiler;
+    }
+
+    public void setProfiler(CodeGenerationProfiler profiler) {
+        this.profiler = profiler;
+    }
+
     // this is used to keep the generated xml file list to pretty print.
     private List outputXmlFileNamesList;
 
@@ -31,7 +31,10 @@ import org.apache.axis2.wsdl.codegen.emitter.Emitter;
 import org.apache.axis2.wsdl.codegen.extension.CodeGenExtension;
 import org.apache.axis2.wsdl.databinding.TypeMapper;
 import org.apache.axis2.wsdl.i18n.CodegenMessages;
+import org.apache.axis2.wsdl.util.CachingWSDLLocator;
+import org.apache.axis2.wsdl.util.CodeGenerationProfiler;
 import org.apache.axis2.wsdl.util.ConfigPropertyFileLoader;
+import org.apache.axis2.wsdl.util.XSLTTemplateCache;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -75,6 +78,7 @@ public class CodeGenerationEngine {
     public CodeGenerationEngine(CommandLineOptionParser parser) throws CodeGenerationException {
         Map allOptions = parser.getAllOptions();
         String wsdlUri;
+        boolean populated = false;
         try {
 
             CommandLineOption option =
@@ -82,12 +86,15 @@ public class CodeGenerationEngine {
                             get(CommandLineOptionConstants.WSDL2JavaConstants.WSDL_LOCATION_URI_OPTION);
             wsdlUri = option.getOptionValue();
             configuration = new CodeGenConfiguration(allOptions);
-
+            if (configuration.getProfiler() != null) {
+                configuration.getProfiler().setWsdlUri(wsdlUri);
+            }
 
             if (CommandLineOptionConstants.WSDL2JavaConstants.WSDL_VERSION_2.
                     equals(configuration.getWSDLVersion())) {
 
                 WSDL20ToAxisServiceBuilder builder;
+                CodeGenerationProfiler.Phase phase = startPhase("services.populate");
 
                 // jibx currently does not support multiservice
                 if ((configuration.getServiceName() != null) || (configuration.getDatabindingType().equals("jibx"))) {
@@ -105,16 +112,22 @@ public class CodeGenerationEngine {
                     configuration.setAxisServices(
                             ((WSDL20ToAllAxisServicesBuilder)builder).populateAllServices());
                 }
+                endPhase(phase);
 
             } else {
                 //It'll be WSDL 1.1
-                Definition wsdl4jDef = readInTheWSDLFile(wsdlUri);
+                // the locator keeps every document it fetches, so the second copy of the
+                // definition is read from memory
+                CodeGenerationProfiler.Phase phase = startPhase("wsdl.read");
+                CachingWSDLLocator locator = new CachingWSDLLocator(wsdlUri);
+                Definition wsdl4jDef = locator.readDefinition();
+                endPhase(phase);
 
                 // we save the original wsdl definition to write it to the resource folder later
                 // this is required only if it has imports
                 Map imports = wsdl4jDef.getImports();
                 if ((imports != null) && (imports.size() > 0)) {
-                    configuration.setWsdlDefinition(readInTheWSDLFile(wsdlUri));
+                    configuration.setWsdlDefinitionLocator(locator);
                 } else {
                     configuration.setWsdlDefinition(wsdl4jDef);
                 }
@@ -131,6 +144,7 @@ public class CodeGenerationEngine {
                 }
 
                 WSDL11ToAxisServiceBuilder builder;
+                phase = startPhase("services.populate");
                 // jibx currently does not support multiservice
                 if ((serviceQname != null) || (configuration.getDatabindingType().equals("jibx"))) {
                     builder = new WSDL11ToAxisServiceBuilder(
@@ -144,11 +158,15 @@ public class CodeGenerationEngine {
                     builder = new WSDL11ToAllAxisServicesBuilder(wsdl4jDef, configuration.getPortName());
                     builder.setCodegen(true);
                     builder.setAllPorts(configuration.isAllPorts());
+                    // the code is generated from the schemas once for all the services
+                    ((WSDL11ToAllAxisServicesBuilder) builder).setShareSchemas(true);
                     configuration.setAxisServices(
                             ((WSDL11ToAllAxisServicesBuilder)builder).populateAllServices());
                 }
+                endPhase(phase);
             }
             configuration.setBaseURI(getBaseURI(wsdlUri));
+            populated = true;
         } catch (AxisFault axisFault) {
             throw new CodeGenerationException(
                     CodegenMessages.getMessage("engine.wsdlParsingException"), axisFault);
@@ -158,6 +176,11 @@ public class CodeGenerationEngine {
         } catch (Exception e) {
             throw new CodeGenerationException(                            
                     CodegenMessages.getMessage("engine.wsdlParsingException"), e);
+        } finally {
+            // the profile of a failed run is written now, since generate() is not called
+            if (!populated) {
+                writeProfile(false);
+            }
         }
 
         loadExtensions();
@@ -218,14 +241,26 @@ public class CodeGenerationEngine {
      * @throws CodeGenerationException
      */
     public void generate() throws CodeGenerationException {
+        boolean generated = false;
         try {
+            CodeGenerationProfiler.Phase phase;
+
             //engage the pre-extensions
             for (int i = 0; i < preExtensions.size(); i++) {
+                phase = startPhase("preExtension:" + preExtensions.get(i).getClass().getName());
                 ((CodeGenExtension)preExtensions.get(i)).engage(configuration);
+                endPhase(phase);
             }
 
             Emitter emitter;
 
+            // warm up the template cache before the writers start asking for the templates
+            if (ConfigPropertyFileLoader.isTemplatePreloadLanguage(
+                    configuration.getOutputLanguage())) {
+                phase = startPhase("templates.preload");
+                XSLTTemplateCache.preload(configuration.getOutputLanguage());
+                endPhase(phase);
+            }
 
             TypeMapper mapper = configuration.getTypeMapper();
             if (mapper == null) {
@@ -250,31 +285,87 @@ public class CodeGenerationEngine {
 
             //invoke the necessary methods in the emitter
             if (configuration.isServerSide()) {
+                phase = startPhase("emitter.skeleton");
                 emitter.emitSkeleton();
+                endPhase(phase);
                 // if the users want both client and server, it would be in the
                 // generate all option
                 if (configuration.isGenerateAll()) {
+                    phase = startPhase("emitter.stub");
                     emitter.emitStub();
+                    endPhase(phase);
                 }
             } else {
+                phase = startPhase("emitter.stub");
                 emitter.emitStub();
+                endPhase(phase);
             }
 
             //engage the post-extensions
             for (int i = 0; i < postExtensions.size(); i++) {
+                phase = startPhase("postExtension:" + postExtensions.get(i).getClass().getName());
                 ((CodeGenExtension)postExtensions.get(i)).engage(configuration);
+                endPhase(phase);
+            }
+
+            //keep the hashes of the generated files for the next incremental run
+            if (configuration.isIncremental()) {
+                phase = startPhase("manifest.save");
+                configuration.getGeneratedFileManifest().save();
+                endPhase(phase);
             }
+            generated = true;
 
         } catch (ClassCastException e) {
             throw new CodeGenerationException(CodegenMessages.getMessage("engine.wrongEmitter"), e);
         } catch (Exception e) {
             throw new CodeGenerationException(e);
+        } finally {
+            writeProfile(generated);
         }
 
 
     }
 
 
+    /**
+     * Starts timing a phase if the run is profiled.
+     *
+     * @param name
+     * @return Returns the phase, or null if the run is not profiled.
+     */
+    private CodeGenerationProfiler.Phase startPhase(String name) {
+        CodeGenerationProfiler profiler = configuration.getProfiler();
+        return profiler == null ? null : profiler.startPhase(name);
+    }
+
+    private void endPhase(CodeGenerationProfiler.Phase phase) {
+        if (phase != null) {
+            phase.end();
+        }
+    }
+
+    /**
+     * Writes the profile report if the run is profiled. A report that cannot be written is
+     * only logged, so that it does not hide the outcome of the generation.
+     *
+     * @param succeeded whether the generation succeeded
+     */
+    private void writeProfile(boolean succeeded) {
+        CodeGenerationProfiler profiler =
+                configuration == null ? null : configuration.getProfiler();
+        if (profiler == null) {
+            return;
+        }
+        profiler.setSucceeded(succeeded);
+        try {
+            profiler.writeReport();
+        } catch (IOException e) {
+            log.warn(CodegenMessages.getMessage("engine.profileWriteProblem",
+                                                profiler.getReportFile().getPath()), e);
+        }
+    }
+
     /**
      * Read the WSDL file
      *
@@ -23,6 +23,7 @@ import org.apache.axis2.util.CommandLineOption;
 import org.apache.axis2.util.CommandLineOptionConstants;
 import org.apache.axis2.wsdl.codegen.extension.XMLBeansExtension;
 import org.apache.axis2.wsdl.i18n.CodegenMessages;
+import org.apache.axis2.wsdl.util.CodeGenerationProfiler;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -299,6 +300,41 @@ class CodegenConfigLoader implements CommandLineOptionConstants {
                                       WSDL2JavaConstants.OVERRIDE_OPTION_LONG,
                                       optionMap) != null);
 
+        config.setIncremental(loadOption(WSDL2JavaConstants.INCREMENTAL_OPTION,
+                                         WSDL2JavaConstants.INCREMENTAL_OPTION_LONG,
+                                         optionMap) != null);
+
+        config.setStreamingModel(loadOption(WSDL2JavaConstants.STREAMING_MODEL_OPTION,
+                                            WSDL2JavaConstants.STREAMING_MODEL_OPTION_LONG,
+                                            optionMap) != null);
+
+        commandLineOption = loadOption(WSDL2JavaConstants.EMITTER_THREADS_OPTION,
+                WSDL2JavaConstants.EMITTER_THREADS_OPTION_LONG, optionMap);
+        if (commandLineOption != null) {
+            int emitterThreadCount = 0;
+            try {
+                emitterThreadCount = Integer.parseInt(commandLineOption.getOptionValue());
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            if (emitterThreadCount < 1) {
+                throw new RuntimeException(
+                        CodegenMessages.getMessage("options.invalidEmitterThreads"));
+            }
+            config.setEmitterThreadCount(emitterThreadCount);
+        }
+
+        commandLineOption = loadOption(WSDL2JavaConstants.PROFILE_OPTION,
+                WSDL2JavaConstants.PROFILE_OPTION_LONG, optionMap);
+        if (commandLineOption != null) {
+            if (commandLineOption.getOptionValue() == null) {
+                throw new RuntimeException(
+                        CodegenMessages.getMessage("options.noProfileFile"));
+            }
+            config.setProfiler(
+                    new CodeGenerationProfiler(new File(commandLineOption.getOptionValue())));
+        }
+
         // loop through the map and find parameters having the extra prefix.
         //put them in the property map
         Iterator keyIterator = optionMap.keySet().iterator();
@@ -19,6 +19,11 @@
 
 package org.apache.axis2.wsdl.codegen.emitter;
 
+import edu.emory.mathcs.backport.java.util.concurrent.Callable;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutionException;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutorService;
+import edu.emory.mathcs.backport.java.util.concurrent.Executors;
+import edu.emory.mathcs.backport.java.util.concurrent.Future;
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.addressing.AddressingConstants;
 import org.apache.axis2.description.AxisBinding;
@@ -78,6 +83,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Source;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.URIResolver;
@@ -91,6 +97,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -190,6 +197,14 @@ public class AxisServiceBasedMultiLanguageEmitter implements Emitter {
     protected static final Log log = LogFactory.getLog(AxisServiceBasedMultiLanguageEmitter.class);
     protected URIResolver resolver;
 
+    // document builders are not thread safe, every thread creating models keeps its own
+    private static final ThreadLocal documentBuilder = new ThreadLocal();
+
+    // the writes running on the emitter threads, oldest first, and the write of the latest model
+    private ExecutorService writeExecutor;
+    private LinkedList pendingWrites = new LinkedList();
+    private ModelWrite currentWrite;
+
     // this is used to keep the current service infoHolder
     protected Map infoHolder;
     // this is used to keep infoHolders for all services
@@ -528,10 +543,14 @@ public class AxisServiceBasedMultiLanguageEmitter implements Emitter {
                     }
                 }
             }
+
+            waitForWrites();
         } catch (CodeGenerationException ce) {
             throw ce;
         } catch (Exception e) {
             throw new CodeGenerationException(e);
+        } finally {
+            stopWrites();
         }
     }
 
@@ -1363,11 +1382,13 @@ public class AxisServiceBasedMultiLanguageEmitter implements Emitter {
                 }
             }
 
-
+            waitForWrites();
         } catch (CodeGenerationException cgExp) {
             throw cgExp;
         } catch (Exception e) {
             throw new CodeGenerationException(e);
+        } finally {
+            stopWrites();
         }
     }
 
@@ -2454,13 +2475,28 @@ public class AxisServiceBasedMultiLanguageEmitter implements Emitter {
     // ==================================================================
 
     protected Document getEmptyDocument() {
-        try {
-            DocumentBuilder documentBuilder =
-                    DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            return documentBuilder.newDocument();
-        } catch (ParserConfigurationException e) {
-            throw new RuntimeException(e);
+        DocumentBuilder builder = (DocumentBuilder) documentBuilder.get();
+        if (builder == null) {
+            try {
+                builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+                throw new RuntimeException(e);
+            }
+            documentBuilder.set(builder);
         }
+        return builder.newDocument();
+    }
+
+    /**
+     * Gets the source the templates read a model from. By default this is the model document
+     * itself; emitters that build streaming models return a source producing the deferred
+     * content of the model as it is read.
+     *
+     * @param model
+     * @return Returns Source.
+     */
+    protected Source getModelSource(Document model) {
+        return new DOMSource(model);
     }
 
     /**
@@ -2549,6 +2585,10 @@ public class AxisServiceBasedMultiLanguageEmitter implements Emitter {
 
     /**
      * A resusable method for the implementation of interface and implementation writing.
+     * <p/>
+     * With more than one emitter thread the template is run on one of those threads and the
+     * file may not have been written yet when this method returns. The model must not be
+     * changed after it has been handed in; waitForWrites() waits for all the files.
      *
      * @param model
      * @param writer
@@ -2557,6 +2597,8 @@ public class AxisServiceBasedMultiLanguageEmitter implements Emitter {
      */
     protected void writeFile(Document model, FileWriter writer) throws IOException, Exception {
         writer.loadTemplate();
+        writer.setManifest(codeGenConfiguration.getGeneratedFileManifest());
+        writer.setProfiler(codeGenConfiguration.getProfiler());
 
         String packageName = model.getDocumentElement().getAttribute("package");
         String className = model.getDocumentElement().getAttribute("name");
@@ -2564,7 +2606,99 @@ public class AxisServiceBasedMultiLanguageEmitter implements Emitter {
         writer.createOutFile(packageName, className);
 
         // use the global resolver
-        writer.parse(model, resolver);
+        Source modelSource = getModelSource(model);
+        if (codeGenConfiguration.getEmitterThreadCount() > 1 &&
+                modelSource instanceof DOMSource) {
+            queueWrite(model, modelSource, writer);
+        } else {
+            // streaming models are produced by the emitter itself while they are read
+            writer.parse(modelSource, resolver);
+        }
+    }
+
+    /**
+     * Hands a write to the emitter threads. A DOM cannot be read by several threads at once,
+     * so all the files written from one model in a row are written by the same task.
+     */
+    private void queueWrite(Document model, Source modelSource, FileWriter writer)
+            throws Exception {
+        if (currentWrite != null && currentWrite.model == model) {
+            currentWrite.writers.add(writer);
+            return;
+        }
+        submitCurrentWrite();
+        currentWrite = new ModelWrite(model, modelSource);
+        currentWrite.writers.add(writer);
+    }
+
+    private void submitCurrentWrite() throws Exception {
+        if (currentWrite == null) {
+            return;
+        }
+        int threadCount = codeGenConfiguration.getEmitterThreadCount();
+        if (writeExecutor == null) {
+            writeExecutor = Executors.newFixedThreadPool(threadCount);
+        }
+        // do not let the models pile up when the templates are slower than the emitter
+        while (pendingWrites.size() >= 2 * threadCount) {
+            getWriteResult((Future)pendingWrites.removeFirst());
+        }
+        pendingWrites.add(writeExecutor.submit(currentWrite));
+        currentWrite = null;
+    }
+
+    /**
+     * Waits until all the files handed to the emitter threads have been written.
+     *
+     * @throws Exception the failure of the first write that failed
+     */
+    protected void waitForWrites() throws Exception {
+        submitCurrentWrite();
+        while (!pendingWrites.isEmpty()) {
+            getWriteResult((Future)pendingWrites.removeFirst());
+        }
+    }
+
+    /** Stops the emitter threads. Writes that have not been waited for are dropped. */
+    protected void stopWrites() {
+        currentWrite = null;
+        pendingWrites.clear();
+        if (writeExecutor != null) {
+            writeExecutor.shutdownNow();
+            writeExecutor = null;
+        }
+    }
+
+    private void getWriteResult(Future write) throws Exception {
+        try {
+            write.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception)cause;
+            }
+            throw new CodeGenerationException(cause);
+        }
+    }
+
+    /** Writes the files of one model */
+    private class ModelWrite implements Callable {
+
+        private Document model;
+        private Source modelSource;
+        private List writers = new ArrayList();
+
+        ModelWrite(Document model, Source modelSource) {
+            this.model = model;
+            this.modelSource = modelSource;
+        }
+
+        public Object call() throws Exception {
+            for (int i = 0; i < writers.size(); i++) {
+                ((FileWriter)writers.get(i)).parse(modelSource, resolver);
+            }
+            return null;
+        }
     }
 
     /**
@@ -43,15 +43,21 @@ import org.apache.axis2.wsdl.codegen.writer.CStubSourceWriter;
 import org.apache.axis2.wsdl.codegen.writer.CSvcSkeletonWriter;
 import org.apache.axis2.wsdl.codegen.writer.FileWriter;
 import org.apache.axis2.wsdl.databinding.CUtils;
+import org.apache.axis2.wsdl.util.ModelXMLReader;
 import org.apache.neethi.Policy;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
 
 import javax.xml.namespace.QName;
+import javax.xml.transform.Source;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 public class CEmitter extends AxisServiceBasedMultiLanguageEmitter {
     protected static final String C_STUB_PREFIX = "axis2_stub_";
@@ -67,6 +73,9 @@ public class CEmitter extends AxisServiceBasedMultiLanguageEmitter {
     protected static final String C_OUR_TYPE_PREFIX = "axis2_";
     protected static final String C_OUR_TYPE_SUFFIX = "_t*";
 
+    /** The deferred operations of the streaming models, keyed by the model document */
+    private Map operationContentMap = new WeakHashMap();
+
     /**
      * Emit the stub
      *
@@ -78,9 +87,12 @@ public class CEmitter extends AxisServiceBasedMultiLanguageEmitter {
             // write interface implementations
             writeCStub();
 
+            waitForWrites();
         } catch (Exception e) {
             //log the error here
             e.printStackTrace();
+        } finally {
+            stopWrites();
         }
     }
 
@@ -102,10 +114,13 @@ public class CEmitter extends AxisServiceBasedMultiLanguageEmitter {
             emitBuildScript();
 
             writeServiceXml();
-            
+
+            waitForWrites();
         }
         catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            stopWrites();
         }
     }
     /**
@@ -409,7 +424,9 @@ public class CEmitter extends AxisServiceBasedMultiLanguageEmitter {
 
 
     /**
-     * Loads the operations
+     * Loads the operations. For a streaming model only a placeholder is added, and each method
+     * element is recorded as SAX events and dropped as soon as it is created. The events are
+     * written in place of the placeholder on every read of the model.
      *
      * @param doc
      * @param rootElement
@@ -417,7 +434,7 @@ public class CEmitter extends AxisServiceBasedMultiLanguageEmitter {
      * @return operations found
      */
     protected boolean loadOperations(Document doc, Element rootElement, String mep) {
-        Element methodElement;
+        boolean streamOperations = isStreamingModel();
         String portTypeName = makeCClassName(axisService.getName());
 
         Iterator bindingOperations = this.axisBinding.getChildren();
@@ -425,6 +442,11 @@ public class CEmitter extends AxisServiceBasedMultiLanguageEmitter {
         AxisOperation axisOperation = null;
         AxisBindingOperation axisBindingOperation = null;
 
+        // the method elements are created exactly once, so the mapper hands out the same
+        // parameter names as for a complete model
+        ModelXMLReader.RecordedContent methods =
+                streamOperations ? new ModelXMLReader.RecordedContent() : null;
+
         while (bindingOperations.hasNext()) {
 
             axisBindingOperation = (AxisBindingOperation) bindingOperations.next();
@@ -438,132 +460,137 @@ public class CEmitter extends AxisServiceBasedMultiLanguageEmitter {
                 infoHolder.put(messageExchangePattern, Boolean.TRUE);
             }
 
-            if (mep == null) {
-
+            //if the mep is present we move ahead only if the given mep matches the mep of this operation
+            if (mep == null || mep.equals(messageExchangePattern)) {
                 opsFound = true;
+                Element methodElement =
+                        getMethodElement(doc, axisBindingOperation, portTypeName);
+                if (streamOperations) {
+                    methods.record(methodElement);
+                } else {
+                    rootElement.appendChild(methodElement);
+                }
+            }
+        }
 
-                List soapHeaderInputParameterList = new ArrayList();
-                List soapHeaderOutputParameterList = new ArrayList();
+        if (streamOperations && opsFound) {
+            String contentKey = mep == null ? "" : mep;
+            rootElement.appendChild(doc.createProcessingInstruction(
+                    ModelXMLReader.CONTENT_INSTRUCTION, contentKey));
+            OperationContent operationContent = (OperationContent)operationContentMap.get(doc);
+            if (operationContent == null) {
+                operationContent = new OperationContent();
+                operationContentMap.put(doc, operationContent);
+            }
+            operationContent.addMethods(contentKey, methods);
+        }
 
-                methodElement = doc.createElement("method");
+        return opsFound;
+    }
 
-                String localPart = axisOperation.getName().getLocalPart();
-                String opCName = makeCClassName(localPart);
-                String opNS = axisOperation.getName().getNamespaceURI();
+    /**
+     * Creates the method element for an operation
+     *
+     * @param doc
+     * @param axisBindingOperation
+     * @param portTypeName
+     * @return DOM element
+     */
+    protected Element getMethodElement(Document doc, AxisBindingOperation axisBindingOperation,
+                                       String portTypeName) {
+        AxisOperation axisOperation = axisBindingOperation.getAxisOperation();
 
-                addAttribute(doc, "name", opCName, methodElement);
-                addAttribute(doc, "localpart", localPart, methodElement);
-                addAttribute(doc, "qname", localPart + "|" + opNS, methodElement);
+        List soapHeaderInputParameterList = new ArrayList();
+        List soapHeaderOutputParameterList = new ArrayList();
 
-                addAttribute(doc, "namespace", opNS, methodElement);
-                String style = axisOperation.getStyle();
-                addAttribute(doc, "style", style, methodElement);
-                addAttribute(doc, "dbsupportname",
-                             portTypeName + localPart + DATABINDING_SUPPORTER_NAME_SUFFIX,
-                             methodElement);
+        Element methodElement = doc.createElement("method");
 
+        String localPart = axisOperation.getName().getLocalPart();
+        String opCName = makeCClassName(localPart);
+        String opNS = axisOperation.getName().getNamespaceURI();
 
-                addAttribute(doc, "mep", Utils.getAxisSpecifMEPConstant(
-                        axisOperation.getMessageExchangePattern()) + "", methodElement);
-                addAttribute(doc, "mepURI", axisOperation.getMessageExchangePattern(),
-                             methodElement);
+        addAttribute(doc, "name", opCName, methodElement);
+        addAttribute(doc, "localpart", localPart, methodElement);
+        addAttribute(doc, "qname", localPart + "|" + opNS, methodElement);
 
+        addAttribute(doc, "namespace", opNS, methodElement);
+        String style = axisOperation.getStyle();
+        addAttribute(doc, "style", style, methodElement);
+        addAttribute(doc, "dbsupportname",
+                     portTypeName + localPart + DATABINDING_SUPPORTER_NAME_SUFFIX,
+                     methodElement);
 
-                addSOAPAction(doc, methodElement, axisBindingOperation.getName());
-                //add header ops for input
-                addHeaderOperations(soapHeaderInputParameterList, axisBindingOperation, true);
-                //add header ops for output
-                addHeaderOperations(soapHeaderOutputParameterList, axisBindingOperation, false);
-
-                PolicyInclude policyInclude = axisOperation.getPolicyInclude();
-                Policy policy = policyInclude.getPolicy();
-                if (policy != null) {
-                    try {
-                        addAttribute(doc, "policy", PolicyUtil.policyComponentToString(policy),
-                                     methodElement);
-                    } catch (Exception ex) {
-                        throw new RuntimeException("can't serialize the policy to a String ", ex);
-                    }
-                }
 
-                methodElement.appendChild(
-                        getInputElement(doc, axisBindingOperation, soapHeaderInputParameterList));
-                methodElement.appendChild(
-                        getOutputElement(doc, axisBindingOperation, soapHeaderOutputParameterList));
-                methodElement.appendChild(getFaultElement(doc, axisOperation));
-
-                rootElement.appendChild(methodElement);
-            } else {
-                //mep is present - we move ahead only if the given mep matches the mep of this operation
-
-                if (mep.equals(axisOperation.getMessageExchangePattern())) {
-                    //at this point we know it's true
-                    opsFound = true;
-                    List soapHeaderInputParameterList = new ArrayList();
-                    List soapHeaderOutputParameterList = new ArrayList();
-                    List soapHeaderFaultParameterList = new ArrayList();
-                    methodElement = doc.createElement("method");
-                    String localPart = axisOperation.getName().getLocalPart();
-                    String opCName = makeCClassName(localPart);
-                    String opNS = axisOperation.getName().getNamespaceURI();
-
-                    addAttribute(doc, "name", opCName, methodElement);
-                    addAttribute(doc, "localpart", localPart, methodElement);
-                    addAttribute(doc, "qname", localPart + "|" + opNS, methodElement);
-
-                    addAttribute(doc, "namespace", axisOperation.getName().getNamespaceURI(),
-                                 methodElement);
-                    addAttribute(doc, "style", axisOperation.getStyle(), methodElement);
-                    addAttribute(doc, "dbsupportname",
-                                 portTypeName + localPart + DATABINDING_SUPPORTER_NAME_SUFFIX,
-                                 methodElement);
-
-                    addAttribute(doc, "mep", Utils.getAxisSpecifMEPConstant(
-                            axisOperation.getMessageExchangePattern()) + "", methodElement);
-                    addAttribute(doc, "mepURI", axisOperation.getMessageExchangePattern(),
-                                 methodElement);
-
-
-                    addSOAPAction(doc, methodElement, axisBindingOperation.getName());
-                    addHeaderOperations(soapHeaderInputParameterList, axisBindingOperation, true);
-                    addHeaderOperations(soapHeaderOutputParameterList, axisBindingOperation, false);
-
-                    /*
-                     * Setting the policy of the operation
-                     */
-
-                    Policy policy = axisOperation.getPolicyInclude().getPolicy();
-                    if (policy != null) {
-                        try {
-                            addAttribute(doc, "policy",
-                                         PolicyUtil.policyComponentToString(policy),
-                                         methodElement);
-                        } catch (Exception ex) {
-                            throw new RuntimeException("can't serialize the policy to a String",
-                                                       ex);
-                        }
-                    }
-
-
-                    methodElement.appendChild(getInputElement(doc,
-                                                              axisBindingOperation,
-                                                              soapHeaderInputParameterList));
-                    methodElement.appendChild(getOutputElement(doc,
-                                                               axisBindingOperation,
-                                                               soapHeaderOutputParameterList));
-                    methodElement.appendChild(getFaultElement(doc,
-                                                              axisOperation));
-                    rootElement.appendChild(methodElement);
-                    //////////////////////
-                }
+        addAttribute(doc, "mep", Utils.getAxisSpecifMEPConstant(
+                axisOperation.getMessageExchangePattern()) + "", methodElement);
+        addAttribute(doc, "mepURI", axisOperation.getMessageExchangePattern(),
+                     methodElement);
 
-            }
 
+        addSOAPAction(doc, methodElement, axisBindingOperation.getName());
+        //add header ops for input
+        addHeaderOperations(soapHeaderInputParameterList, axisBindingOperation, true);
+        //add header ops for output
+        addHeaderOperations(soapHeaderOutputParameterList, axisBindingOperation, false);
+
+        PolicyInclude policyInclude = axisOperation.getPolicyInclude();
+        Policy policy = policyInclude.getPolicy();
+        if (policy != null) {
+            try {
+                addAttribute(doc, "policy", PolicyUtil.policyComponentToString(policy),
+                             methodElement);
+            } catch (Exception ex) {
+                throw new RuntimeException("can't serialize the policy to a String ", ex);
+            }
         }
 
-        return opsFound;
+        methodElement.appendChild(
+                getInputElement(doc, axisBindingOperation, soapHeaderInputParameterList));
+        methodElement.appendChild(
+                getOutputElement(doc, axisBindingOperation, soapHeaderOutputParameterList));
+        methodElement.appendChild(getFaultElement(doc, axisOperation));
+
+        return methodElement;
+    }
+
+    /**
+     * Streaming models are only used when the debug log is off, so that debugLogDocument
+     * still gets to see the whole model document
+     *
+     * @return Returns boolean.
+     */
+    protected boolean isStreamingModel() {
+        return codeGenConfiguration.isStreamingModel() && !log.isDebugEnabled();
     }
 
+    /**
+     * @param model
+     * @return Returns the source reading the operations of the model as they are written.
+     */
+    protected Source getModelSource(Document model) {
+        OperationContent operationContent = (OperationContent)operationContentMap.get(model);
+        if (operationContent != null) {
+            return new ModelXMLReader(model.getDocumentElement(), operationContent).getSource();
+        }
+        return super.getModelSource(model);
+    }
+
+    /**
+     * Writes the method elements of a streaming model from the events recorded when the model
+     * was built, keyed by the mep they were loaded for.
+     */
+    private static class OperationContent implements ModelXMLReader.ModelContent {
+
+        private Map methods = new HashMap();
+
+        void addMethods(String mep, ModelXMLReader.RecordedContent content) {
+            methods.put(mep, content);
+        }
+
+        public void writeContent(String mep, ModelXMLReader reader) throws SAXException {
+            reader.writeRecorded((ModelXMLReader.RecordedContent)methods.get(mep));
+        }
+    }
 
     /**
      * A convenient method for the generating the parameter element
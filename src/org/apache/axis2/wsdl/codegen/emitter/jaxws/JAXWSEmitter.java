@@ -101,11 +101,13 @@ public abstract class JAXWSEmitter extends AxisServiceBasedMultiLanguageEmitter
                 writeAntBuild();
             }
 
-
+            waitForWrites();
         } catch (CodeGenerationException cgExp) {
             throw cgExp;
         } catch (Exception e) {
             throw new CodeGenerationException(e);
+        } finally {
+            stopWrites();
         }
     }
 
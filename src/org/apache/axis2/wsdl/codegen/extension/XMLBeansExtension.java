@@ -24,15 +24,9 @@ import org.apache.axis2.util.CommandLineOptionConstants;
 import org.apache.axis2.wsdl.codegen.CodeGenConfiguration;
 import org.apache.axis2.wsdl.codegen.schema.AxisServiceTopElementSchemaGenerator;
 import org.apache.axis2.wsdl.databinding.TypeMapper;
-import org.apache.axis2.wsdl.i18n.CodegenMessages;
-import org.apache.axis2.wsdl.util.ConfigPropertyFileLoader;
-import org.w3c.dom.Document;
+import org.apache.axis2.wsdl.util.ThirdPartySchemaCache;
 import org.w3c.dom.Element;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -134,40 +128,7 @@ public class XMLBeansExtension extends AbstractDBProcessingExtension {
      * @return element array consisting of the the DOM element objects that represent schemas
      */
     private Element[] loadAdditionalSchemas() {
-        //load additional schemas
-        String[] schemaNames = ConfigPropertyFileLoader.getThirdPartySchemaNames();
-        Element[] schemaElements;
-
-        try {
-            ArrayList additionalSchemaElements = new ArrayList();
-            DocumentBuilder documentBuilder = getNamespaceAwareDocumentBuilder();
-            for (int i = 0; i < schemaNames.length; i++) {
-                //the location for the third party schema;s is hardcoded
-                if (!"".equals(schemaNames[i].trim())) {
-                    InputStream schemaStream =
-                            this.getClass().getResourceAsStream(SCHEMA_PATH + schemaNames[i]);
-                    Document doc = documentBuilder.parse(schemaStream);
-                    additionalSchemaElements.add(doc.getDocumentElement());
-                }
-            }
-
-            //Create the Schema element array
-            schemaElements = new Element[additionalSchemaElements.size()];
-            for (int i = 0; i < additionalSchemaElements.size(); i++) {
-                schemaElements[i] = (Element)additionalSchemaElements.get(i);
-
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(
-                    CodegenMessages.getMessage("extension.additionalSchemaFailure"), e);
-        }
-
-        return schemaElements;
-    }
-
-    private DocumentBuilder getNamespaceAwareDocumentBuilder() throws ParserConfigurationException {
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        documentBuilderFactory.setNamespaceAware(true);
-        return documentBuilderFactory.newDocumentBuilder();
+        //the third party schemas are parsed once and shared between the code generation runs
+        return ThirdPartySchemaCache.getSchemaElements();
     }
 }
@@ -19,13 +19,11 @@
 
 package org.apache.axis2.wsdl.codegen.writer;
 
-import org.apache.axis2.util.XSLTTemplateProcessor;
 import org.apache.axis2.wsdl.util.ConfigPropertyFileLoader;
-import org.w3c.dom.Document;
 
+import javax.xml.transform.Source;
 import javax.xml.transform.URIResolver;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -52,9 +50,9 @@ public class AntBuildWriter extends FileWriter {
                                                      "build",
                                                      ".xml");
         //set the existing flag
-        fileExists = outputFile.exists();
+        fileExists = isExistingFile();
         if (!fileExists) {
-            this.stream = new FileOutputStream(outputFile);
+            openOutputStream();
         }
     }
 
@@ -90,17 +88,15 @@ public class AntBuildWriter extends FileWriter {
     /**
      * Writes the output file.
      *
-     * @param doc
+     * @param model
      * @throws Exception
      */
-    public void parse(Document doc, URIResolver resolver) throws Exception {
-        if (!fileExists) {
-            XSLTTemplateProcessor.parse(this.stream,
-                                        doc,
-                                        this.xsltStream,
-                                        resolver);
+    public void parse(Source model, URIResolver resolver) throws Exception {
+        if (!fileExists && !isUpToDate(model, resolver)) {
+            transform(model, resolver);
             this.stream.flush();
             this.stream.close();
+            recordOutputFile();
         }
     }
 }
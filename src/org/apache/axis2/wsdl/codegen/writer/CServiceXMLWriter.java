@@ -20,7 +20,6 @@
 package org.apache.axis2.wsdl.codegen.writer;
 
 import java.io.File;
-import java.io.FileOutputStream;
 
 public class CServiceXMLWriter extends FileWriter {
 
@@ -41,9 +40,9 @@ public class CServiceXMLWriter extends FileWriter {
                                                 "services",
                                                 ".xml");
         //set the existing flag
-        fileExists = outputFile.exists();
+        fileExists = isExistingFile();
         if (!fileExists) {
-            this.stream = new FileOutputStream(outputFile);
+            openOutputStream();
         }
     }
 }
@@ -19,12 +19,10 @@
 
 package org.apache.axis2.wsdl.codegen.writer;
 
-import org.apache.axis2.util.XSLTTemplateProcessor;
-import org.w3c.dom.Document;
 
+import javax.xml.transform.Source;
 import javax.xml.transform.URIResolver;
 import java.io.File;
-import java.io.FileOutputStream;
 
 public class CSvcSkeletonWriter extends FileWriter {
 
@@ -43,28 +41,26 @@ public class CSvcSkeletonWriter extends FileWriter {
                                                 fileName,
                                                 getFileExtensionForLanguage(language));
         //set the existing flag
-        fileExists = outputFile.exists();
+        fileExists = isExistingFile();
         if (!fileExists) {
-            this.stream = new FileOutputStream(outputFile);
+            openOutputStream();
         }
     }
 
     /**
      * Writes the output file.
      *
-     * @param doc
+     * @param model
      * @throws Exception
      */
-    public void parse(Document doc, URIResolver resolver) throws Exception {
-        if (!fileExists) {
-            XSLTTemplateProcessor.parse(this.stream,
-                                        doc,
-                                        this.xsltStream,
-                                        resolver);
+    public void parse(Source model, URIResolver resolver) throws Exception {
+        if (!fileExists && !isUpToDate(model, resolver)) {
+            transform(model, resolver);
             this.stream.write('\n');
             this.stream.write('\n');
             this.stream.flush();
             this.stream.close();
+            recordOutputFile();
         }
     }
 
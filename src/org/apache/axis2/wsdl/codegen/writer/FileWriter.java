@@ -23,15 +23,22 @@ import org.apache.axis2.i18n.Messages;
 import org.apache.axis2.util.XSLTTemplateProcessor;
 import org.apache.axis2.wsdl.codegen.CodeGenerationException;
 import org.apache.axis2.wsdl.i18n.CodegenMessages;
+import org.apache.axis2.wsdl.util.CodeGenerationProfiler;
 import org.apache.axis2.wsdl.util.ConfigPropertyFileLoader;
+import org.apache.axis2.wsdl.util.GeneratedFileManifest;
+import org.apache.axis2.wsdl.util.XSLTIncludeResolver;
+import org.apache.axis2.wsdl.util.XSLTTemplateCache;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.w3c.dom.Document;
 
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
 import javax.xml.transform.URIResolver;
+import javax.xml.transform.dom.DOMSource;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.InputStream;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -42,7 +49,7 @@ public abstract class FileWriter {
     protected File outputFileLocation = null;
     protected File outputFile = null;
     protected FileOutputStream stream = null;
-    protected InputStream xsltStream = null;
+    protected String templateName = null;
     protected String language = ConfigPropertyFileLoader.getDefaultLanguage(); //default would java
 
     protected static final String TEMPLATE_SUFFIX = ".template";
@@ -52,6 +59,14 @@ public abstract class FileWriter {
     protected boolean fileExists = false;//a flag saying the file is existing
     protected boolean isOverride = false;
 
+    // the manifest of the incremental mode and the hash of the model being written
+    protected GeneratedFileManifest manifest = null;
+    protected String modelHash = null;
+
+    // collects the time taken by the transformation for the profile report
+    protected CodeGenerationProfiler profiler = null;
+    protected long transformStart = 0;
+
     /**
      * Sets the language.
      *
@@ -68,7 +83,6 @@ public abstract class FileWriter {
         // <lang-name>.* .template=<write-class>,<template-name>
 
         //first get the language specific property map
-        Class clazz = this.getClass();
         Map languageSpecificPropertyMap =
                 (Map)ConfigPropertyFileLoader.getLanguageSpecificPropertiesMap().get(this.language);
         if (languageSpecificPropertyMap == null) {
@@ -76,10 +90,9 @@ public abstract class FileWriter {
                     CodegenMessages.getMessage("writer.noLangPropertiesExtension"));
         }
 
-        String templateName = findTemplate(languageSpecificPropertyMap);
-        if (templateName != null) {
-            this.xsltStream = clazz.getResourceAsStream(templateName);
-        } else {
+        // the template itself is compiled once and shared through the template cache
+        this.templateName = findTemplate(languageSpecificPropertyMap);
+        if (this.templateName == null) {
             throw new CodeGenerationException(CodegenMessages.getMessage("writer.templateMissing"));
         }
 
@@ -127,11 +140,11 @@ public abstract class FileWriter {
                                                 getFileExtensionForLanguage(language));
         //set the existing flag
         if (this.isOverride) {
-            this.stream = new FileOutputStream(outputFile);
+            openOutputStream();
         } else {
-            fileExists = outputFile.exists();
+            fileExists = isExistingFile();
             if (!fileExists) {
-                this.stream = new FileOutputStream(outputFile);
+                openOutputStream();
             } else {
                 log.info(Messages.getMessage("fileExistsNoOverwrite", outputFile.toString()));
             }
@@ -139,6 +152,20 @@ public abstract class FileWriter {
 
     }
 
+    /**
+     * Checks whether the output file is there already and has to be left as it is. In the
+     * incremental mode a file that was generated earlier and has not been changed since does
+     * not count, so that it is rewritten when its model has changed.
+     *
+     * @return Returns boolean.
+     */
+    protected boolean isExistingFile() {
+        if (!outputFile.exists()) {
+            return false;
+        }
+        return manifest == null || !manifest.isGenerated(outputFile);
+    }
+
     /**
      * Finds the file name extension.
      *
@@ -171,20 +198,117 @@ public abstract class FileWriter {
      * @throws Exception
      */
     public void parse(Document doc, URIResolver resolver) throws Exception {
-        if (!fileExists) {
-            XSLTTemplateProcessor.parse(this.stream,
-                                        doc,
-                                        this.xsltStream,
-                                        resolver);
+        parse(new DOMSource(doc), resolver);
+    }
+
+    /**
+     * Writes the output file from a model given as a source, e.g. a streaming model.
+     *
+     * @param model
+     * @throws Exception
+     */
+    public void parse(Source model, URIResolver resolver) throws Exception {
+        if (!fileExists && !isUpToDate(model, resolver)) {
+            transform(model, resolver);
             this.stream.flush();
             this.stream.close();
+            recordOutputFile();
+        }
+    }
+
+    /**
+     * Opens the stream to the output file. In the incremental mode this is held back until
+     * it is known that the file has to be written.
+     *
+     * @throws IOException
+     */
+    protected void openOutputStream() throws IOException {
+        this.stream = null;
+        if (manifest == null) {
+            this.stream = new FileOutputStream(outputFile);
         }
     }
 
+    /**
+     * Checks the model against the incremental manifest. Returns true if the output file was
+     * generated from the same model and template earlier and has not changed since. Otherwise
+     * makes sure the output stream is open.
+     *
+     * @param model
+     * @param resolver
+     * @return Returns boolean.
+     * @throws Exception
+     */
+    protected boolean isUpToDate(Source model, URIResolver resolver) throws Exception {
+        if (manifest == null) {
+            return false;
+        }
+        String templateKey = language;
+        if (resolver instanceof XSLTIncludeResolver) {
+            templateKey = templateKey + ((XSLTIncludeResolver)resolver).getCacheKey();
+        }
+        modelHash = manifest.getHash(model, templateName, templateKey);
+        if (manifest.isUpToDate(outputFile, modelHash)) {
+            return true;
+        }
+        if (this.stream == null) {
+            this.stream = new FileOutputStream(outputFile);
+        }
+        return false;
+    }
+
+    /**
+     * Records the file that has just been written in the incremental manifest and in the
+     * profile report.
+     */
+    protected void recordOutputFile() {
+        if (manifest != null) {
+            manifest.record(outputFile, modelHash);
+        }
+        if (profiler != null) {
+            profiler.recordWrite(getClass().getName(), templateName, outputFile,
+                                 System.currentTimeMillis() - transformStart);
+        }
+    }
+
+    /**
+     * Runs the compiled template of this writer over the given model and writes the result to
+     * the output stream.
+     *
+     * @param model
+     * @param resolver
+     * @throws Exception
+     */
+    protected void transform(Source model, URIResolver resolver) throws Exception {
+        transformStart = System.currentTimeMillis();
+        Transformer transformer =
+                XSLTTemplateCache.getTemplates(language, templateName, resolver).newTransformer();
+        if (resolver != null) {
+            transformer.setURIResolver(resolver);
+        }
+        XSLTTemplateProcessor.parse(this.stream, model, transformer);
+    }
+
     public boolean isOverride() {
         return isOverride;
     }
 
+    public GeneratedFileManifest getManifest() {
+        return manifest;
+    }
+
+    public void setManifest(GeneratedFileManifest manifest) {
+        this.manifest = manifest;
+    }
+
+    public CodeGenerationProfiler getProfiler() {
+        return profiler;
+    }
+
+    public void setProfiler(CodeGenerationProfiler profiler) {
+        this.profiler = profiler;
+    }
+
     public void setOverride(boolean override) {
         isOverride = override;
     }
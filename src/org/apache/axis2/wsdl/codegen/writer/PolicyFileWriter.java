@@ -20,7 +20,6 @@
 package org.apache.axis2.wsdl.codegen.writer;
 
 import java.io.File;
-import java.io.FileOutputStream;
 
 public class PolicyFileWriter extends FileWriter {
 
@@ -35,9 +34,9 @@ public class PolicyFileWriter extends FileWriter {
                                                      fileName,
                                                      ".xml");
         //set the existing flag
-        fileExists = outputFile.exists();
+        fileExists = isExistingFile();
         if (!fileExists) {
-            this.stream = new FileOutputStream(outputFile);
+            openOutputStream();
         }
     }
 }
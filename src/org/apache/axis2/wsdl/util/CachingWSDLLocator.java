@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.xml.sax.InputSource;
+
+import javax.wsdl.Definition;
+import javax.wsdl.WSDLException;
+import javax.wsdl.factory.WSDLFactory;
+import javax.wsdl.xml.WSDLLocator;
+import javax.wsdl.xml.WSDLReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A WSDL locator that fetches every document only once. The content of the main WSDL and of
+ * every document it imports is kept in memory, so the same WSDL can be read into several
+ * independent definitions without going back to the file system or the network.
+ */
+public class CachingWSDLLocator implements WSDLLocator {
+
+    private static final Log log = LogFactory.getLog(CachingWSDLLocator.class);
+
+    private static final String IMPORT_DOCUMENTS_FEATURE = "javax.wsdl.importDocuments";
+
+    private String baseURI;
+    private String latestImportURI;
+    private Map documentMap = new HashMap();
+
+    /**
+     * @param wsdlURI the location of the main WSDL, either a URL or a file path
+     */
+    public CachingWSDLLocator(String wsdlURI) {
+        this.baseURI = getURL(null, wsdlURI).toString();
+    }
+
+    /**
+     * Reads the WSDL into a new definition. Documents fetched by an earlier read are taken
+     * from memory.
+     *
+     * @return Returns Definition.
+     * @throws WSDLException
+     */
+    public Definition readDefinition() throws WSDLException {
+        WSDLReader reader = WSDLFactory.newInstance().newWSDLReader();
+        reader.setFeature(IMPORT_DOCUMENTS_FEATURE, true);
+        return reader.readWSDL(this);
+    }
+
+    public InputSource getBaseInputSource() {
+        return getInputSource(baseURI);
+    }
+
+    public InputSource getImportInputSource(String parentLocation, String importLocation) {
+        latestImportURI = getURL(parentLocation, importLocation).toString();
+        return getInputSource(latestImportURI);
+    }
+
+    public String getBaseURI() {
+        return baseURI;
+    }
+
+    public String getLatestImportURI() {
+        return latestImportURI;
+    }
+
+    public void close() {
+        // nothing is kept open, the cached documents stay for the next read
+    }
+
+    private InputSource getInputSource(String uri) {
+        byte[] content = (byte[])documentMap.get(uri);
+        if (content == null) {
+            try {
+                content = fetch(uri);
+            } catch (IOException e) {
+                // let the reader report the missing document
+                log.debug("Cannot read " + uri, e);
+                return null;
+            }
+            documentMap.put(uri, content);
+        }
+        InputSource inputSource = new InputSource(new ByteArrayInputStream(content));
+        inputSource.setSystemId(uri);
+        return inputSource;
+    }
+
+    private byte[] fetch(String uri) throws IOException {
+        InputStream in = new URL(uri).openStream();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Resolves a location against its parent the same way the WSDL reader does, treating
+     * locations that are not URLs as file paths.
+     */
+    private static URL getURL(String parentLocation, String location) {
+        try {
+            if (parentLocation != null) {
+                return new URL(new URL(parentLocation), location);
+            }
+            return new URL(location);
+        } catch (MalformedURLException e) {
+            File file = new File(location);
+            try {
+                return file.getCanonicalFile().toURI().toURL();
+            } catch (IOException ioe) {
+                throw new IllegalArgumentException(location);
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the time spent in the phases of a code generation run and in every template
+ * transformation, and writes them to a JSON report.
+ * <p/>
+ * A phase records the wall clock time and, where the JVM can tell, the bytes allocated by the
+ * thread that ran it. Template transformations record the time taken and the size of the file
+ * written. The report looks like
+ * <pre>
+ * {"wsdl":"...","succeeded":true,"totalMillis":1234,
+ *  "phases":[{"name":"wsdl.read","millis":120,"allocatedBytes":5242880}, ...],
+ *  "writers":[{"writer":"...","template":"...","file":"...","millis":12,"bytes":4096}, ...]}
+ * </pre>
+ * allocatedBytes is -1 if the JVM does not count allocations per thread. The report of a run
+ * that failed holds the phases that ended before the failure.
+ */
+public class CodeGenerationProfiler {
+
+    private static final Log log = LogFactory.getLog(CodeGenerationProfiler.class);
+
+    private static final String ENCODING = "UTF-8";
+
+    // com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long), if the JVM has it
+    private static Object threadBean;
+    private static Method allocatedBytesMethod;
+
+    static {
+        try {
+            Object bean = ManagementFactory.getThreadMXBean();
+            Class beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if (beanClass.isInstance(bean)) {
+                allocatedBytesMethod =
+                        beanClass.getMethod("getThreadAllocatedBytes", new Class[]{long.class});
+                threadBean = bean;
+            }
+        } catch (Exception e) {
+            log.debug("Allocated bytes are not available", e);
+        }
+    }
+
+    private File reportFile;
+    private String wsdlUri;
+    private boolean succeeded = true;
+    private long startTime;
+    private List phases = new ArrayList();
+    private List writes = new ArrayList();
+
+    /**
+     * @param reportFile the file the JSON report is written to
+     */
+    public CodeGenerationProfiler(File reportFile) {
+        this.reportFile = reportFile;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    public void setWsdlUri(String wsdlUri) {
+        this.wsdlUri = wsdlUri;
+    }
+
+    public void setSucceeded(boolean succeeded) {
+        this.succeeded = succeeded;
+    }
+
+    public File getReportFile() {
+        return reportFile;
+    }
+
+    /**
+     * Starts timing a phase on the current thread.
+     *
+     * @param name
+     * @return Returns the phase, which must be ended on the same thread.
+     */
+    public Phase startPhase(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Records a template transformation.
+     *
+     * @param writer       the class name of the writer
+     * @param templateName the resource name of the template
+     * @param outputFile   the file written
+     * @param millis       the time taken by the transformation and the write
+     */
+    public synchronized void recordWrite(String writer, String templateName, File outputFile,
+                                         long millis) {
+        writes.add(new Object[]{writer, templateName, outputFile.getPath(),
+                                new Long(millis), new Long(outputFile.length())});
+    }
+
+    /**
+     * Writes the report.
+     *
+     * @throws IOException
+     */
+    public synchronized void writeReport() throws IOException {
+        StringBuffer json = new StringBuffer();
+        json.append("{\"wsdl\":");
+        appendString(json, wsdlUri);
+        json.append(",\"succeeded\":").append(succeeded);
+        json.append(",\"totalMillis\":").append(System.currentTimeMillis() - startTime);
+
+        json.append(",\n\"phases\":[");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = (Phase)phases.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("{\"name\":");
+            appendString(json, phase.name);
+            json.append(",\"millis\":").append(phase.millis);
+            json.append(",\"allocatedBytes\":").append(phase.allocatedBytes);
+            json.append('}');
+        }
+
+        json.append("],\n\"writers\":[");
+        for (int i = 0; i < writes.size(); i++) {
+            Object[] write = (Object[])writes.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("{\"writer\":");
+            appendString(json, (String)write[0]);
+            json.append(",\"template\":");
+            appendString(json, (String)write[1]);
+            json.append(",\"file\":");
+            appendString(json, (String)write[2]);
+            json.append(",\"millis\":").append(write[3]);
+            json.append(",\"bytes\":").append(write[4]);
+            json.append('}');
+        }
+        json.append("]}\n");
+
+        File parent = reportFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {//$NON-SEC-3
+            parent.mkdirs();//$NON-SEC-2
+        }
+        Writer out = new OutputStreamWriter(new FileOutputStream(reportFile), ENCODING);
+        try {
+            out.write(json.toString());
+        } finally {
+            out.close();
+        }
+    }
+
+    private synchronized void addPhase(Phase phase) {
+        phases.add(phase);
+    }
+
+    private static void appendString(StringBuffer json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        String hex = Integer.toHexString(c);
+                        json.append("\\u");
+                        for (int j = hex.length(); j < 4; j++) {
+                            json.append('0');
+                        }
+                        json.append(hex);
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private static long getAllocatedBytes() {
+        if (allocatedBytesMethod == null) {
+            return -1;
+        }
+        try {
+            Long bytes = (Long)allocatedBytesMethod.invoke(
+                    threadBean, new Object[]{new Long(Thread.currentThread().getId())});
+            return bytes.longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /** A phase of the run being timed */
+    public class Phase {
+
+        private String name;
+        private long start;
+        private long startAllocatedBytes;
+        private long millis;
+        private long allocatedBytes = -1;
+
+        Phase(String name) {
+            this.name = name;
+            this.startAllocatedBytes = getAllocatedBytes();
+            this.start = System.currentTimeMillis();
+        }
+
+        /** Ends the phase and adds it to the report. */
+        public void end() {
+            millis = System.currentTimeMillis() - start;
+            long endAllocatedBytes = getAllocatedBytes();
+            if (startAllocatedBytes >= 0 && endAllocatedBytes >= 0) {
+                allocatedBytes = endAllocatedBytes - startAllocatedBytes;
+            }
+            addPhase(this);
+        }
+    }
+}
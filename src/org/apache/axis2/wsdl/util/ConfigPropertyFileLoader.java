@@ -49,6 +49,7 @@ public class ConfigPropertyFileLoader {
     private static String[] databindingFrameworkNames;
     private static String[] unwrapSuppoerteddatabindingFrameworkNames;
     private static String[] unwrapDirectdatabindingFrameworkNames;
+    private static String[] templatePreloadLanguages;
 
     private static Map languageEmitterMap;
     private static Map languageSpecificPropertiesMap;
@@ -79,6 +80,7 @@ public class ConfigPropertyFileLoader {
             "codegen.databinding.testobject.template";
     private static final String SOURCE_FOLDER_NAME_KEY = "codegen.general.src.name";
     private static final String RESOURCE_FOLDER_NAME_KEY = "codegen.general.resource.name";
+    private static final String TEMPLATE_PRELOAD_LANGUAGES_KEY = "codegen.templates.preload";
 
 
     public static final String DEFAULT_CODEGEN_CONFIG_PROPERTIES =
@@ -126,6 +128,8 @@ public class ConfigPropertyFileLoader {
         defaultDBFrameworkName = null;
         srcFolderName = null;
         resourceFolderName = null;
+        templatePreloadLanguages = null;
+        XSLTTemplateCache.clear();
 
     }
 
@@ -199,6 +203,12 @@ public class ConfigPropertyFileLoader {
                 resourceFolderName = tempString;
             }
 
+            //load the languages whose templates are compiled up front
+            tempString = props.getProperty(TEMPLATE_PRELOAD_LANGUAGES_KEY);
+            if (tempString != null) {
+                templatePreloadLanguages = tempString.split(SEPARATOR_CHAR);
+            }
+
             //populate the data binding framework name to extension name map
             tempString = props.getProperty(DATA_BINDING_FRAMEWORK_EXTENSION_NAME_KEY);
             if (tempString != null) {
@@ -396,6 +406,25 @@ public class ConfigPropertyFileLoader {
         return Arrays.asList(unwrapDirectdatabindingFrameworkNames);
     }
 
+    /**
+     * Checks whether the templates of the given language should be compiled before the code
+     * generation starts.
+     *
+     * @param language
+     * @return Returns boolean.
+     */
+    public static boolean isTemplatePreloadLanguage(String language) {
+        if (templatePreloadLanguages == null) {
+            return false;
+        }
+        for (int i = 0; i < templatePreloadLanguages.length; i++) {
+            if (templatePreloadLanguages[i].trim().equals(language)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Gets the default language name.
      *
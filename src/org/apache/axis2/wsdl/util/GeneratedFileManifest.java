@@ -0,0 +1,397 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXSource;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Keeps track of the files generated into an output directory for the incremental code
+ * generation. For every generated file the manifest holds a hash of the model document it
+ * was generated from together with the template that was used. When a later run produces
+ * the same hash for a file that has not been touched since, the transformation and the
+ * write are skipped, so the file keeps its modification time.
+ * <p/>
+ * The manifest is stored as a properties file in the output directory.
+ */
+public class GeneratedFileManifest {
+
+    private static final Log log = LogFactory.getLog(GeneratedFileManifest.class);
+
+    public static final String MANIFEST_FILE_NAME = ".codegen-manifest";
+
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+    private static final String ENTRY_SEPARATOR = ",";
+    private static final String ENCODING = "UTF-8";
+
+    private File rootDir;
+    private File manifestFile;
+    private Properties entries = new Properties();
+    private Map templateHashMap = new HashMap();
+    // the entries of the files found up to date or written during this run
+    private Set usedEntries = new HashSet();
+    private boolean modified = false;
+
+    /**
+     * Creates a manifest for the given output directory, loading the entries written by an
+     * earlier run if there are any.
+     *
+     * @param rootDir
+     * @throws IOException
+     */
+    public GeneratedFileManifest(File rootDir) throws IOException {
+        this.rootDir = rootDir;
+        this.manifestFile = new File(rootDir, MANIFEST_FILE_NAME);
+        if (manifestFile.exists()) {
+            InputStream in = new FileInputStream(manifestFile);
+            try {
+                entries.load(in);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Calculates the hash of a model document and the template it is going to be transformed
+     * with.
+     *
+     * @param model        the model document
+     * @param templateName the resource name of the template
+     * @param templateKey  anything else the output depends on, e.g. the included templates
+     * @return Returns String.
+     * @throws IOException
+     */
+    public String getHash(Document model, String templateName, String templateKey)
+            throws IOException {
+        MessageDigest digest = newDigest();
+        updateDigest(digest, model);
+        update(digest, getTemplateHash(templateName));
+        update(digest, templateKey);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Calculates the hash of a model and the template it is going to be transformed with. The
+     * model can be a DOMSource or a SAXSource, a model gets the same hash either way.
+     *
+     * @param model        the model
+     * @param templateName the resource name of the template
+     * @param templateKey  anything else the output depends on, e.g. the included templates
+     * @return Returns String.
+     * @throws IOException
+     */
+    public String getHash(Source model, String templateName, String templateKey)
+            throws IOException {
+        MessageDigest digest = newDigest();
+        if (model instanceof DOMSource) {
+            updateDigest(digest, ((DOMSource)model).getNode());
+        } else if (model instanceof SAXSource) {
+            XMLReader reader = ((SAXSource)model).getXMLReader();
+            reader.setContentHandler(new DigestHandler(digest));
+            try {
+                reader.parse(((SAXSource)model).getInputSource());
+            } catch (SAXException e) {
+                throw new IOException(e.getMessage());
+            }
+        } else {
+            throw new IllegalArgumentException(model.getClass().getName());
+        }
+        update(digest, getTemplateHash(templateName));
+        update(digest, templateKey);
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Checks whether the given file was generated from a model and template with the given
+     * hash, and has not been changed or removed since.
+     *
+     * @param outputFile
+     * @param hash
+     * @return Returns boolean.
+     */
+    public synchronized boolean isUpToDate(File outputFile, String hash) {
+        String entry = entries.getProperty(getEntryKey(outputFile));
+        if (entry == null || !outputFile.exists()) {
+            return false;
+        }
+        String expected = hash + ENTRY_SEPARATOR + outputFile.lastModified();
+        if (expected.equals(entry)) {
+            usedEntries.add(getEntryKey(outputFile));
+            if (log.isDebugEnabled()) {
+                log.debug("Skipping up to date file " + outputFile);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the given file was generated by an earlier run and has not been changed
+     * or removed since, whatever model it was generated from.
+     *
+     * @param outputFile
+     * @return Returns boolean.
+     */
+    public boolean isGenerated(File outputFile) {
+        return isUnchanged(getEntryKey(outputFile));
+    }
+
+    /**
+     * Records the hash for a file that has just been written.
+     *
+     * @param outputFile
+     * @param hash
+     */
+    public synchronized void record(File outputFile, String hash) {
+        entries.setProperty(getEntryKey(outputFile),
+                            hash + ENTRY_SEPARATOR + outputFile.lastModified());
+        usedEntries.add(getEntryKey(outputFile));
+        modified = true;
+    }
+
+    /**
+     * Gets the entries of the files found up to date or written so far during this run. An
+     * entry is the path of the file relative to the output directory.
+     *
+     * @return Returns Set.
+     */
+    public synchronized Set getUsedEntries() {
+        return new HashSet(usedEntries);
+    }
+
+    /**
+     * Checks whether the file of an entry is still there as it was generated, without
+     * recalculating the hash of its model. A file that passes counts as used by this run.
+     *
+     * @param entryKey the path of the file relative to the output directory
+     * @return Returns boolean.
+     */
+    public synchronized boolean isUnchanged(String entryKey) {
+        String entry = entries.getProperty(entryKey);
+        File outputFile = new File(rootDir, entryKey.replace('/', File.separatorChar));
+        if (entry == null || !outputFile.exists()
+                || !entry.endsWith(ENTRY_SEPARATOR + outputFile.lastModified())) {
+            return false;
+        }
+        usedEntries.add(entryKey);
+        return true;
+    }
+
+    /**
+     * Writes the manifest back to the output directory.
+     *
+     * @throws IOException
+     */
+    public synchronized void save() throws IOException {
+        if (!modified) {
+            return;
+        }
+        OutputStream out = new FileOutputStream(manifestFile);
+        try {
+            entries.store(out, "Generated files and the hashes of their models and templates");
+        } finally {
+            out.close();
+        }
+        modified = false;
+    }
+
+    private String getEntryKey(File outputFile) {
+        String rootPath = rootDir.getAbsolutePath() + File.separator;
+        String filePath = outputFile.getAbsolutePath();
+        if (filePath.startsWith(rootPath)) {
+            filePath = filePath.substring(rootPath.length());
+        }
+        return filePath.replace(File.separatorChar, '/');
+    }
+
+    private synchronized String getTemplateHash(String templateName) throws IOException {
+        String templateHash = (String) templateHashMap.get(templateName);
+        if (templateHash == null) {
+            MessageDigest digest = newDigest();
+            update(digest, templateName);
+            InputStream in = GeneratedFileManifest.class.getResourceAsStream(templateName);
+            if (in != null) {
+                try {
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+            templateHash = toHex(digest.digest());
+            templateHashMap.put(templateName, templateHash);
+        }
+        return templateHash;
+    }
+
+    /**
+     * Feeds a node and all its descendants to the digest. Names and values are separated by
+     * markers so that different trees cannot produce the same byte sequence.
+     */
+    private void updateDigest(MessageDigest digest, Node node)
+            throws UnsupportedEncodingException {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                digest.update((byte) '<');
+                update(digest, node.getNodeName());
+                NamedNodeMap attributes = node.getAttributes();
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    Attr attribute = (Attr) attributes.item(i);
+                    digest.update((byte) '@');
+                    update(digest, attribute.getName());
+                    digest.update((byte) '=');
+                    update(digest, attribute.getValue());
+                }
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                updateText(digest, new StringBuffer(node.getNodeValue()));
+                break;
+            default:
+                break;
+        }
+        // adjacent text is fed as one value, as a SAX parser may report it in any pieces
+        StringBuffer text = new StringBuffer();
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.TEXT_NODE
+                    || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+                text.append(child.getNodeValue());
+            } else {
+                updateText(digest, text);
+                updateDigest(digest, child);
+            }
+        }
+        updateText(digest, text);
+        if (node.getNodeType() == Node.ELEMENT_NODE) {
+            digest.update((byte) '>');
+        }
+    }
+
+    /** Feeds a run of text to the digest and empties the buffer. */
+    private void updateText(MessageDigest digest, StringBuffer text)
+            throws UnsupportedEncodingException {
+        if (text.length() > 0) {
+            digest.update((byte) '#');
+            update(digest, text.toString());
+            text.setLength(0);
+        }
+    }
+
+    /** Feeds the SAX events of a model to the digest the same way updateDigest does a DOM. */
+    private class DigestHandler extends DefaultHandler {
+
+        private MessageDigest digest;
+        // the characters reported since the last start or end tag
+        private StringBuffer text = new StringBuffer();
+
+        DigestHandler(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        public void startElement(String uri, String localName, String qName,
+                                 Attributes attributes) throws SAXException {
+            try {
+                updateText(digest, text);
+                digest.update((byte) '<');
+                update(digest, qName);
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    digest.update((byte) '@');
+                    update(digest, attributes.getQName(i));
+                    digest.update((byte) '=');
+                    update(digest, attributes.getValue(i));
+                }
+            } catch (UnsupportedEncodingException e) {
+                throw new SAXException(e);
+            }
+        }
+
+        public void characters(char[] ch, int start, int length) {
+            text.append(ch, start, length);
+        }
+
+        public void endElement(String uri, String localName, String qName)
+                throws SAXException {
+            try {
+                updateText(digest, text);
+            } catch (UnsupportedEncodingException e) {
+                throw new SAXException(e);
+            }
+            digest.update((byte) '>');
+        }
+    }
+
+    private void update(MessageDigest digest, String value)
+            throws UnsupportedEncodingException {
+        if (value != null) {
+            digest.update(value.getBytes(ENCODING));
+        }
+        digest.update((byte) 0);
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String toHex(byte[] bytes) {
+        StringBuffer buffer = new StringBuffer(bytes.length * 2);
+        for (int i = 0; i < bytes.length; i++) {
+            int value = bytes[i] & 0xff;
+            if (value < 0x10) {
+                buffer.append('0');
+            }
+            buffer.append(Integer.toHexString(value));
+        }
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.util;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.sax.SAXSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Feeds a code generation model to the templates as a stream of SAX events instead of a
+ * complete DOM document.
+ * <p/>
+ * The model is described by its root element, which carries the attributes and the small
+ * children of the model. Wherever the root element holds a {@link #CONTENT_INSTRUCTION}
+ * processing instruction, the bulk of the model (e.g. the operations of a service) is asked
+ * for from a {@link ModelContent}, which writes it one element at a time. Content that is
+ * built once and read many times can be kept as {@link RecordedContent}, the SAX events of its
+ * elements, so that the elements themselves can be dropped as soon as they have been created.
+ * <p/>
+ * The model is produced again every time it is read, so the same reader can be used for all
+ * the files generated from a model.
+ */
+public class ModelXMLReader implements XMLReader {
+
+    /** The target of the processing instructions standing for the deferred content */
+    public static final String CONTENT_INSTRUCTION = "model-content";
+
+    private static final String NAMESPACES_FEATURE = "http://xml.org/sax/features/namespaces";
+    private static final String NAMESPACE_PREFIXES_FEATURE =
+            "http://xml.org/sax/features/namespace-prefixes";
+    private static final String CDATA = "CDATA";
+
+    /** Writes the deferred content of a model. */
+    public interface ModelContent {
+
+        /**
+         * Writes the content that stands at the given processing instruction.
+         *
+         * @param data   the data of the processing instruction
+         * @param reader the reader to write the content elements to
+         * @throws SAXException
+         */
+        public void writeContent(String data, ModelXMLReader reader) throws SAXException;
+    }
+
+    /**
+     * Model elements kept as the SAX events they are written as. The events take far less
+     * memory than the elements and are written again on every read of the model, so the
+     * elements are only created once and can be dropped right after they are recorded.
+     */
+    public static class RecordedContent {
+
+        private List events = new ArrayList();
+
+        /**
+         * Records a model element and all its children.
+         *
+         * @param node
+         */
+        public void record(Node node) {
+            switch (node.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                    String name = node.getNodeName();
+                    events.add(new StartElement(name, getAttributes(node)));
+                    for (Node child = node.getFirstChild(); child != null;
+                         child = child.getNextSibling()) {
+                        record(child);
+                    }
+                    events.add(new EndElement(name));
+                    break;
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                    events.add(node.getNodeValue().toCharArray());
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        void write(ContentHandler handler) throws SAXException {
+            for (Iterator iter = events.iterator(); iter.hasNext();) {
+                Object event = iter.next();
+                if (event instanceof StartElement) {
+                    StartElement start = (StartElement)event;
+                    handler.startElement("", start.name, start.name, start.attributes);
+                } else if (event instanceof EndElement) {
+                    String name = ((EndElement)event).name;
+                    handler.endElement("", name, name);
+                } else {
+                    char[] text = (char[])event;
+                    handler.characters(text, 0, text.length);
+                }
+            }
+        }
+    }
+
+    private static class StartElement {
+        String name;
+        AttributesImpl attributes;
+
+        StartElement(String name, AttributesImpl attributes) {
+            this.name = name;
+            this.attributes = attributes;
+        }
+    }
+
+    private static class EndElement {
+        String name;
+
+        EndElement(String name) {
+            this.name = name;
+        }
+    }
+
+    private Element rootElement;
+    private ModelContent modelContent;
+
+    private ContentHandler contentHandler;
+    private ErrorHandler errorHandler;
+    private DTDHandler dtdHandler;
+    private EntityResolver entityResolver;
+    private boolean namespacePrefixes = false;
+
+    public ModelXMLReader(Element rootElement, ModelContent modelContent) {
+        this.rootElement = rootElement;
+        this.modelContent = modelContent;
+    }
+
+    /**
+     * Gets the model as a source for a transformation.
+     *
+     * @return Returns Source.
+     */
+    public Source getSource() {
+        return new SAXSource(this, new InputSource());
+    }
+
+    public Element getRootElement() {
+        return rootElement;
+    }
+
+    public void parse(InputSource input) throws IOException, SAXException {
+        if (contentHandler == null) {
+            return;
+        }
+        contentHandler.startDocument();
+        writeElement(rootElement);
+        contentHandler.endDocument();
+    }
+
+    public void parse(String systemId) throws IOException, SAXException {
+        parse(new InputSource(systemId));
+    }
+
+    /**
+     * Writes a model element and all its children. Deferred content found on the way is
+     * written in place.
+     *
+     * @param node
+     * @throws SAXException
+     */
+    public void writeElement(Node node) throws SAXException {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                String name = node.getNodeName();
+                contentHandler.startElement("", name, name, getAttributes(node));
+                for (Node child = node.getFirstChild(); child != null;
+                     child = child.getNextSibling()) {
+                    writeElement(child);
+                }
+                contentHandler.endElement("", name, name);
+                break;
+            case Node.TEXT_NODE:
+            case Node.CDATA_SECTION_NODE:
+                char[] text = node.getNodeValue().toCharArray();
+                contentHandler.characters(text, 0, text.length);
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                ProcessingInstruction instruction = (ProcessingInstruction)node;
+                if (CONTENT_INSTRUCTION.equals(instruction.getTarget())) {
+                    modelContent.writeContent(instruction.getData(), this);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes recorded model elements.
+     *
+     * @param content
+     * @throws SAXException
+     */
+    public void writeRecorded(RecordedContent content) throws SAXException {
+        content.write(contentHandler);
+    }
+
+    private static AttributesImpl getAttributes(Node node) {
+        AttributesImpl attributes = new AttributesImpl();
+        NamedNodeMap attributeMap = node.getAttributes();
+        for (int i = 0; i < attributeMap.getLength(); i++) {
+            Attr attribute = (Attr)attributeMap.item(i);
+            attributes.addAttribute("", attribute.getName(), attribute.getName(), CDATA,
+                                    attribute.getValue());
+        }
+        return attributes;
+    }
+
+    public boolean getFeature(String name) throws SAXNotRecognizedException {
+        if (NAMESPACES_FEATURE.equals(name)) {
+            return true;
+        } else if (NAMESPACE_PREFIXES_FEATURE.equals(name)) {
+            return namespacePrefixes;
+        }
+        throw new SAXNotRecognizedException(name);
+    }
+
+    public void setFeature(String name, boolean value) throws SAXNotRecognizedException {
+        if (NAMESPACES_FEATURE.equals(name)) {
+            return;
+        } else if (NAMESPACE_PREFIXES_FEATURE.equals(name)) {
+            namespacePrefixes = value;
+            return;
+        }
+        throw new SAXNotRecognizedException(name);
+    }
+
+    public Object getProperty(String name) throws SAXNotRecognizedException {
+        throw new SAXNotRecognizedException(name);
+    }
+
+    public void setProperty(String name, Object value) throws SAXNotRecognizedException {
+        throw new SAXNotRecognizedException(name);
+    }
+
+    public ContentHandler getContentHandler() {
+        return contentHandler;
+    }
+
+    public void setContentHandler(ContentHandler contentHandler) {
+        this.contentHandler = contentHandler;
+    }
+
+    public ErrorHandler getErrorHandler() {
+        return errorHandler;
+    }
+
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    public DTDHandler getDTDHandler() {
+        return dtdHandler;
+    }
+
+    public void setDTDHandler(DTDHandler dtdHandler) {
+        this.dtdHandler = dtdHandler;
+    }
+
+    public EntityResolver getEntityResolver() {
+        return entityResolver;
+    }
+
+    public void setEntityResolver(EntityResolver entityResolver) {
+        this.entityResolver = entityResolver;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.util;
+
+import org.apache.axis2.wsdl.i18n.CodegenMessages;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process wide cache of the third party schemas listed under codegen.thirdparty.schema in the
+ * codegen configuration. The schemas are parsed once and every caller gets its own copy, since
+ * the databinding frameworks are free to change the schema elements they are given and DOM
+ * trees cannot be read by several threads at once.
+ */
+public class ThirdPartySchemaCache {
+
+    /** The location for the third party schemas is hardcoded */
+    public static final String SCHEMA_PATH = "/org/apache/axis2/wsdl/codegen/schema/";
+
+    private static List schemaDocuments = null;
+
+    /**
+     * Gets copies of the third party schemas.
+     *
+     * @return element array consisting of the the DOM element objects that represent schemas
+     */
+    public static synchronized Element[] getSchemaElements() {
+        if (schemaDocuments == null) {
+            schemaDocuments = loadSchemaDocuments();
+        }
+
+        Element[] schemaElements = new Element[schemaDocuments.size()];
+        for (int i = 0; i < schemaElements.length; i++) {
+            Document copy = (Document)((Document)schemaDocuments.get(i)).cloneNode(true);
+            schemaElements[i] = copy.getDocumentElement();
+        }
+        return schemaElements;
+    }
+
+    private static List loadSchemaDocuments() {
+        String[] schemaNames = ConfigPropertyFileLoader.getThirdPartySchemaNames();
+        List documents = new ArrayList();
+        try {
+            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+            documentBuilderFactory.setNamespaceAware(true);
+            DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
+            for (int i = 0; i < schemaNames.length; i++) {
+                if (!"".equals(schemaNames[i].trim())) {
+                    InputStream schemaStream = ThirdPartySchemaCache.class
+                            .getResourceAsStream(SCHEMA_PATH + schemaNames[i]);
+                    try {
+                        documents.add(documentBuilder.parse(schemaStream));
+                    } finally {
+                        if (schemaStream != null) {
+                            schemaStream.close();
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(
+                    CodegenMessages.getMessage("extension.additionalSchemaFailure"), e);
+        }
+        return documents;
+    }
+}
@@ -98,10 +98,24 @@ public class WSDL2JavaOptionsValidator implements CommandLineOptionConstants, Op
                     WSDL2JavaConstants.SKELTON_INTERFACE_NAME_OPTION_LONG.equalsIgnoreCase(optionType) ||
                     WSDL2JavaConstants.SKELTON_CLASS_NAME_OPTION.equalsIgnoreCase(optionType) ||
                     WSDL2JavaConstants.SKELTON_CLASS_NAME_OPTION_LONG.equalsIgnoreCase(optionType) ||
+                    WSDL2JavaConstants.INCREMENTAL_OPTION.equalsIgnoreCase(optionType) ||
+                    WSDL2JavaConstants.INCREMENTAL_OPTION_LONG.equalsIgnoreCase(optionType) ||
+                    WSDL2JavaConstants.STREAMING_MODEL_OPTION.equalsIgnoreCase(optionType) ||
+                    WSDL2JavaConstants.STREAMING_MODEL_OPTION_LONG.equalsIgnoreCase(optionType) ||
+                    WSDL2JavaConstants.EMITTER_THREADS_OPTION.equalsIgnoreCase(optionType) ||
+                    WSDL2JavaConstants.EMITTER_THREADS_OPTION_LONG.equalsIgnoreCase(optionType) ||
+                    WSDL2JavaConstants.PROFILE_OPTION.equalsIgnoreCase(optionType) ||
+                    WSDL2JavaConstants.PROFILE_OPTION_LONG.equalsIgnoreCase(optionType) ||
                     XMLBeansExtension.XSDCONFIG_OPTION.equalsIgnoreCase(optionType) ||
                     XMLBeansExtension.XSDCONFIG_OPTION_LONG.equalsIgnoreCase(optionType)
             );
 
+            // the profile option needs the report file
+            if (!invalid && (WSDL2JavaConstants.PROFILE_OPTION.equalsIgnoreCase(optionType) ||
+                    WSDL2JavaConstants.PROFILE_OPTION_LONG.equalsIgnoreCase(optionType))) {
+                invalid = option.getOptionValue() == null;
+            }
+
         }
 
         return invalid;
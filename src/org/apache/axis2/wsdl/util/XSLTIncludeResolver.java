@@ -30,6 +30,7 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class XSLTIncludeResolver implements URIResolver, Constants {
 
@@ -93,6 +94,28 @@ public class XSLTIncludeResolver implements URIResolver, Constants {
         return getEmptySource();
     }
 
+    /**
+     * Gets a key describing everything the resolved includes depend on. Templates compiled
+     * with resolvers having the same key include the same content.
+     *
+     * @return Returns String.
+     */
+    public String getCacheKey() {
+        // only string valued properties can name an included template
+        Map templateProperties = new TreeMap();
+        Map externalPropertyMap = configuration.getProperties();
+        Object key;
+        Object value;
+        for (Iterator keys = externalPropertyMap.keySet().iterator(); keys.hasNext();) {
+            key = keys.next();
+            value = externalPropertyMap.get(key);
+            if ((key instanceof String) && (value instanceof String)) {
+                templateProperties.put(key, value);
+            }
+        }
+        return configuration.getDatabindingType() + templateProperties;
+    }
+
     /**
      * load the template from a given resource path
      *
@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.axis2.wsdl.util;
+
+import edu.emory.mathcs.backport.java.util.concurrent.ConcurrentHashMap;
+import org.apache.axis2.wsdl.i18n.CodegenMessages;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process wide cache of the compiled code generation templates. Compiling a stylesheet is
+ * far more expensive than running it, and the writers use the same handful of templates for
+ * every file they generate, so each template is compiled only once and the resulting
+ * {@link Templates} are shared.
+ * <p/>
+ * Entries are keyed by the language and the template resource name. Templates that pull in
+ * other stylesheets through the {@link XSLTIncludeResolver} depend on the code generation
+ * configuration, so those are additionally keyed with the resolver state. Templates compiled
+ * with any other resolver are kept with the stylesheets their includes resolved to, and are
+ * reused for a resolver that resolves the same includes to the same system IDs.
+ */
+public class XSLTTemplateCache {
+
+    private static final Log log = LogFactory.getLog(XSLTTemplateCache.class);
+
+    private static final String KEY_SEPARATOR = ",";
+    private static final String TEMPLATE_SUFFIX = ".template";
+
+    private static Map templatesMap = new ConcurrentHashMap();
+
+    /** template key to the List of IncludeSets compiled for resolvers of other kinds */
+    private static ConcurrentHashMap includeSetsMap = new ConcurrentHashMap();
+
+    /**
+     * Gets the compiled form of the given template, compiling it on the first request.
+     *
+     * @param language     the output language the template belongs to
+     * @param templateName the resource name of the template
+     * @param resolver     the resolver for the xsl:include references, may be null
+     * @return Returns Templates.
+     * @throws TransformerConfigurationException
+     *
+     */
+    public static Templates getTemplates(String language, String templateName,
+                                         URIResolver resolver)
+            throws TransformerConfigurationException {
+        String key = language + KEY_SEPARATOR + templateName;
+        Templates templates = (Templates)templatesMap.get(key);
+        if (templates != null) {
+            return templates;
+        }
+
+        String resolverKey = null;
+        if (resolver instanceof XSLTIncludeResolver) {
+            resolverKey = key + KEY_SEPARATOR + ((XSLTIncludeResolver)resolver).getCacheKey();
+            templates = (Templates)templatesMap.get(resolverKey);
+            if (templates != null) {
+                return templates;
+            }
+        } else if (resolver != null) {
+            templates = getTemplatesWithIncludes(key, resolver);
+            if (templates != null) {
+                return templates;
+            }
+        }
+
+        IncludeRecordingResolver recordingResolver = new IncludeRecordingResolver(resolver);
+        templates = compile(templateName, recordingResolver);
+        if (!recordingResolver.isUsed()) {
+            // nothing was included, the compiled template is good for any configuration
+            templatesMap.put(key, templates);
+        } else if (resolverKey != null) {
+            templatesMap.put(resolverKey, templates);
+        } else if (recordingResolver.isCacheable()) {
+            List includeSets = (List)includeSetsMap.get(key);
+            if (includeSets == null) {
+                includeSets = Collections.synchronizedList(new ArrayList());
+                List existing = (List)includeSetsMap.putIfAbsent(key, includeSets);
+                if (existing != null) {
+                    includeSets = existing;
+                }
+            }
+            includeSets.add(new IncludeSet(templates, recordingResolver.getIncludes()));
+        }
+        return templates;
+    }
+
+    /**
+     * Finds a template compiled with a resolver that resolved its includes the way the given
+     * one does.
+     *
+     * @return Returns Templates, or null if there is none.
+     */
+    private static Templates getTemplatesWithIncludes(String key, URIResolver resolver)
+            throws TransformerConfigurationException {
+        List includeSets = (List)includeSetsMap.get(key);
+        if (includeSets == null) {
+            return null;
+        }
+        Object[] candidates = includeSets.toArray();
+        for (int i = 0; i < candidates.length; i++) {
+            IncludeSet includeSet = (IncludeSet)candidates[i];
+            try {
+                if (includeSet.matches(resolver)) {
+                    return includeSet.templates;
+                }
+            } catch (TransformerException e) {
+                throw new TransformerConfigurationException(e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compiles all the templates mapped for the given language in the codegen configuration
+     * properties. Only templates that do not depend on the code generation configuration can be
+     * compiled ahead of time, the rest are compiled on first use.
+     *
+     * @param language
+     */
+    public static void preload(String language) {
+        Map languageSpecificPropertyMap =
+                (Map)ConfigPropertyFileLoader.getLanguageSpecificPropertiesMap().get(language);
+        if (languageSpecificPropertyMap == null) {
+            return;
+        }
+
+        String key;
+        String propertyValue;
+        for (Iterator keys = languageSpecificPropertyMap.keySet().iterator(); keys.hasNext();) {
+            key = keys.next().toString();
+            if (!key.endsWith(TEMPLATE_SUFFIX)) {
+                continue;
+            }
+            propertyValue = languageSpecificPropertyMap.get(key).toString();
+            String templateName =
+                    propertyValue.substring(propertyValue.indexOf(KEY_SEPARATOR) + 1).trim();
+            if (templatesMap.containsKey(language + KEY_SEPARATOR + templateName)) {
+                continue;
+            }
+            try {
+                getTemplates(language, templateName, new PreloadResolver());
+            } catch (TransformerConfigurationException e) {
+                // the template includes other templates, it will be compiled when it is used
+                log.debug("Skipped preloading template " + templateName, e);
+            }
+        }
+    }
+
+    /** Drops all the compiled templates. */
+    public static void clear() {
+        templatesMap.clear();
+        includeSetsMap.clear();
+    }
+
+    private static Templates compile(String templateName, URIResolver resolver)
+            throws TransformerConfigurationException {
+        InputStream xslStream = XSLTTemplateCache.class.getResourceAsStream(templateName);
+        if (xslStream == null) {
+            throw new TransformerConfigurationException(
+                    CodegenMessages.getMessage("writer.templateMissing"));
+        }
+        try {
+            TransformerFactory transformerFactory = TransformerFactory.newInstance();
+            transformerFactory.setURIResolver(resolver);
+            return transformerFactory.newTemplates(new StreamSource(xslStream));
+        } finally {
+            try {
+                xslStream.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Keeps track of what the stylesheet being compiled included. An include resolved to a
+     * source without a system ID cannot be recognized again, so the template is not cacheable
+     * by its includes then.
+     */
+    private static class IncludeRecordingResolver implements URIResolver {
+
+        private URIResolver resolver;
+        private boolean used = false;
+        private boolean cacheable = true;
+        private List includes = new ArrayList();
+
+        IncludeRecordingResolver(URIResolver resolver) {
+            this.resolver = resolver;
+        }
+
+        public Source resolve(String href, String base) throws TransformerException {
+            used = true;
+            Source source = resolver == null ? null : resolver.resolve(href, base);
+            if (source != null && source.getSystemId() == null) {
+                cacheable = false;
+            }
+            includes.add(new String[] {
+                    href, base, source == null ? null : source.getSystemId() });
+            return source;
+        }
+
+        boolean isUsed() {
+            return used;
+        }
+
+        boolean isCacheable() {
+            return cacheable;
+        }
+
+        List getIncludes() {
+            return includes;
+        }
+    }
+
+    /** A compiled template and the system IDs its includes were resolved to. */
+    private static class IncludeSet {
+
+        private Templates templates;
+        // href, base and system ID of each include, null as the ID when the default was used
+        private List includes;
+
+        IncludeSet(Templates templates, List includes) {
+            this.templates = templates;
+            this.includes = includes;
+        }
+
+        boolean matches(URIResolver resolver) throws TransformerException {
+            for (Iterator iter = includes.iterator(); iter.hasNext();) {
+                String[] include = (String[])iter.next();
+                Source source = resolver.resolve(include[0], include[1]);
+                String systemId = source == null ? null : source.getSystemId();
+                close(source);
+                if (systemId == null ? include[2] != null : !systemId.equals(include[2])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void close(Source source) {
+            if (!(source instanceof StreamSource)) {
+                return;
+            }
+            StreamSource streamSource = (StreamSource)source;
+            try {
+                if (streamSource.getInputStream() != null) {
+                    streamSource.getInputStream().close();
+                } else if (streamSource.getReader() != null) {
+                    streamSource.getReader().close();
+                }
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /** Refuses every include, since there is no code generation configuration to resolve them. */
+    private static class PreloadResolver implements URIResolver {
+
+        public Source resolve(String href, String base) throws TransformerException {
+            throw new TransformerException(
+                    CodegenMessages.getMessage("resolver.templateNotFound", href));
+        }
+    }
+}
@@ -84,10 +84,36 @@ public abstract class AbstractPolicyOperator implements PolicyOperator {
         }
         
         
-        result.addPolicyComponent(normalizeOperator(policy, policy, reg, deep));
+        // the cached form is shared, so the result gets operators of its own
+        ExactlyOne exactlyOne = new ExactlyOne();
+        for (PolicyComponent alternative 
+                 : ((ExactlyOne) getNormalizedForm(policy, reg, deep)).getPolicyComponents()) {
+            All all = new All();
+            all.addPolicyComponents(((All) alternative).getPolicyComponents());
+            exactlyOne.addPolicyComponent(all);
+        }
+        result.addPolicyComponent(exactlyOne);
         return result;
     }
     
+    /*
+     * Returns the normalized form of a policy, from the registry if it is a
+     * PolicyRegistryImpl that has it already.
+     */
+    private static PolicyComponent getNormalizedForm(Policy policy, PolicyRegistry reg, 
+                                                     boolean deep) {
+        PolicyRegistryImpl cache = reg instanceof PolicyRegistryImpl 
+            ? (PolicyRegistryImpl) reg : null;
+        PolicyComponent normalized = cache == null ? null : cache.getNormalizedForm(policy, deep);
+        if (normalized == null) {
+            normalized = normalizeOperator(policy, policy, reg, deep);
+            if (cache != null) {
+                cache.putNormalizedForm(policy, deep, normalized);
+            }
+        }
+        return normalized;
+    }
+    
     private static PolicyComponent normalizeOperator(Policy policy, 
                                                      PolicyOperator operator, 
                                                      PolicyRegistry reg,
@@ -132,10 +158,14 @@ public abstract class AbstractPolicyOperator implements PolicyOperator {
 
                     policyComponent = reg == null ? null : reg.lookup(id);
                     if (policyComponent == null) {
-                        for (PolicyComponent p : policy.getPolicyComponents()) {
-                            if (p instanceof Policy && id.equals(((Policy)p).getId())) {
-                                policyComponent = p;
-                            }
+                        // a policy of this one is not kept in the registry
+                        policyComponent = findLocalPolicy(policy, id);
+                        if (policyComponent != null) {
+                            All all = new All();
+                            all.addPolicyComponents(((Policy) policyComponent).getPolicyComponents());
+                            childComponentsList.add(
+                                AbstractPolicyOperator.normalizeOperator(policy, all, reg, deep));
+                            continue;
                         }
                     }
                 }
@@ -143,9 +173,8 @@ public abstract class AbstractPolicyOperator implements PolicyOperator {
                     throw new RuntimeException(uri + " can't be resolved");
                 }
                 
-                All all = new All();
-                all.addPolicyComponents(((Policy) policyComponent).getPolicyComponents());
-                childComponentsList.add(AbstractPolicyOperator.normalizeOperator(policy, all, reg, deep));
+                // a registered policy is normalized on its own, once per registry
+                childComponentsList.add(getNormalizedForm((Policy) policyComponent, reg, deep));
          
             } else if (policyComponent.getType() == Constants.TYPE_POLICY) {
                 All all = new All();
@@ -162,6 +191,19 @@ public abstract class AbstractPolicyOperator implements PolicyOperator {
         return computeResultantComponent(childComponentsList, type);
     }
     
+    /*
+     * Finds the policy with the given id among the child policies of a policy.
+     */
+    static Policy findLocalPolicy(Policy policy, String id) {
+        Policy found = null;
+        for (PolicyComponent p : policy.getPolicyComponents()) {
+            if (p instanceof Policy && id.equals(((Policy)p).getId())) {
+                found = (Policy) p;
+            }
+        }
+        return found;
+    }
+    
     private static PolicyComponent computeResultantComponent(List<PolicyComponent> normalizedInnerComponets, 
                                                              short componentType) {
         
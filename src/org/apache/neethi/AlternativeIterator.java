@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.neethi;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the alternatives of a policy without normalizing it first.
+ * The alternatives come in the order of the normalized form, but each one is
+ * only put together when it is asked for, so a caller that stops after the
+ * first alternatives does not pay for the full cross product of the policy.
+ * <p>
+ * If the policy has been normalized with a PolicyRegistryImpl already, the
+ * alternatives are taken from the normalized form the registry keeps.
+ */
+class AlternativeIterator implements Iterator<List<Assertion>> {
+
+    private Node root;
+    private boolean hasNext;
+
+    /**
+     * @param policy the policy
+     * @param reg the registry to resolve the policy references with
+     * @param maxAlternatives the largest number of alternatives the policy
+     *        may have, or a negative number for no limit
+     * @throws IllegalStateException if the policy has more alternatives than
+     *         maxAlternatives
+     */
+    public AlternativeIterator(Policy policy, PolicyRegistry reg, long maxAlternatives) {
+        PolicyComponent normalized = reg instanceof PolicyRegistryImpl
+            ? ((PolicyRegistryImpl) reg).getNormalizedForm(policy, false) : null;
+        root = createNode(normalized != null ? normalized : policy, policy, reg);
+
+        if (maxAlternatives >= 0) {
+            long count = root.count();
+            if (count > maxAlternatives) {
+                throw new IllegalStateException("The policy has "
+                                                + (count == Long.MAX_VALUE ? "too many" : String.valueOf(count))
+                                                + " alternatives, more than " + maxAlternatives);
+            }
+        }
+        hasNext = root.reset();
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    public List<Assertion> next() {
+        if (!hasNext) {
+            throw new NoSuchElementException();
+        }
+        List<Assertion> asserts = new ArrayList<Assertion>();
+        root.collect(asserts);
+        hasNext = root.advance();
+        return asserts;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException(
+                "policyAlternative.remove() is not supported");
+    }
+
+    /*
+     * Builds the node of a component. The policy is the one that references of
+     * the form #id are looked up in when the registry does not have them, as in
+     * AbstractPolicyOperator.
+     */
+    private static Node createNode(PolicyComponent component, Policy policy, PolicyRegistry reg) {
+        switch (component.getType()) {
+        case Constants.TYPE_ASSERTION:
+            return new AssertionNode((Assertion) component);
+
+        case Constants.TYPE_POLICY_REF:
+            String uri = ((PolicyReference) component).getURI();
+            Policy referenced = reg == null ? null : reg.lookup(uri);
+            if (referenced == null && uri.charAt(0) == '#') {
+                String id = uri.substring(1);
+
+                referenced = reg == null ? null : reg.lookup(id);
+                if (referenced == null) {
+                    referenced = AbstractPolicyOperator.findLocalPolicy(policy, id);
+                    if (referenced != null) {
+                        return createNode(referenced, policy, reg);
+                    }
+                }
+            }
+            if (referenced == null) {
+                throw new RuntimeException(uri + " can't be resolved");
+            }
+            PolicyComponent normalized = reg instanceof PolicyRegistryImpl
+                ? ((PolicyRegistryImpl) reg).getNormalizedForm(referenced, false) : null;
+            return createNode(normalized != null ? normalized : referenced, referenced, reg);
+
+        case Constants.TYPE_EXACTLYONE:
+            return new ChoiceNode(createNodes((PolicyOperator) component, policy, reg));
+
+        default:
+            return new ProductNode(createNodes((PolicyOperator) component, policy, reg));
+        }
+    }
+
+    private static Node[] createNodes(PolicyOperator operator, Policy policy, PolicyRegistry reg) {
+        List<PolicyComponent> components = operator.getPolicyComponents();
+        Node[] nodes = new Node[components.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = createNode(components.get(i), policy, reg);
+        }
+        return nodes;
+    }
+
+    /**
+     * The alternatives of a component, one at a time.
+     */
+    private abstract static class Node {
+
+        /**
+         * Moves to the first alternative. Returns false if there is none.
+         */
+        abstract boolean reset();
+
+        /**
+         * Moves to the next alternative. Returns false if there is none.
+         */
+        abstract boolean advance();
+
+        /**
+         * Adds the assertions of the current alternative.
+         */
+        abstract void collect(List<Assertion> asserts);
+
+        /**
+         * Returns the number of alternatives, or Long.MAX_VALUE if there are
+         * more than that.
+         */
+        abstract long count();
+    }
+
+    private static class AssertionNode extends Node {
+        private Assertion assertion;
+
+        AssertionNode(Assertion assertion) {
+            this.assertion = assertion;
+        }
+
+        boolean reset() {
+            return true;
+        }
+
+        boolean advance() {
+            return false;
+        }
+
+        void collect(List<Assertion> asserts) {
+            asserts.add(assertion);
+        }
+
+        long count() {
+            return 1;
+        }
+    }
+
+    /**
+     * An ExactlyOne: the alternatives of each child in turn.
+     */
+    private static class ChoiceNode extends Node {
+        private Node[] children;
+        private int current;
+
+        ChoiceNode(Node[] children) {
+            this.children = children;
+        }
+
+        boolean reset() {
+            current = -1;
+            return nextChild();
+        }
+
+        boolean advance() {
+            return children[current].advance() || nextChild();
+        }
+
+        private boolean nextChild() {
+            while (++current < children.length) {
+                if (children[current].reset()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void collect(List<Assertion> asserts) {
+            children[current].collect(asserts);
+        }
+
+        long count() {
+            long count = 0;
+            for (Node child : children) {
+                count += child.count();
+                if (count < 0) {
+                    return Long.MAX_VALUE;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * An All or a Policy: the cross product of the alternatives of its
+     * children, the last child changing fastest.
+     */
+    private static class ProductNode extends Node {
+        private Node[] children;
+
+        ProductNode(Node[] children) {
+            this.children = children;
+        }
+
+        boolean reset() {
+            for (Node child : children) {
+                if (!child.reset()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean advance() {
+            for (int i = children.length - 1; i >= 0; i--) {
+                if (children[i].advance()) {
+                    for (int j = i + 1; j < children.length; j++) {
+                        children[j].reset();
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void collect(List<Assertion> asserts) {
+            for (Node child : children) {
+                child.collect(asserts);
+            }
+        }
+
+        long count() {
+            long count = 1;
+            for (Node child : children) {
+                long childCount = child.count();
+                if (childCount == 0) {
+                    return 0;
+                }
+                if (count > Long.MAX_VALUE / childCount) {
+                    count = Long.MAX_VALUE;
+                } else {
+                    count *= childCount;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -19,7 +19,6 @@
 
 package org.apache.neethi;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -39,6 +38,15 @@ import org.apache.neethi.util.PolicyIntersector;
  */
 public class Policy extends All {
 
+    /**
+     * The system property that sets the largest number of alternatives that
+     * getAlternatives() allows a policy to have. There is no limit if it is
+     * not set.
+     */
+    public static final String MAX_ALTERNATIVES_PROPERTY = "org.apache.neethi.maxAlternatives";
+
+    private static final long DEFAULT_MAX_ALTERNATIVES = getDefaultMaxAlternatives();
+
     private Map<QName, String> attributes = new HashMap<QName, String>();
     private String namespace;
     private PolicyRegistry registry;
@@ -56,6 +64,14 @@ public class Policy extends All {
         super(parent);
     }
 
+    private static long getDefaultMaxAlternatives() {
+        try {
+            return Long.getLong(MAX_ALTERNATIVES_PROPERTY, -1).longValue();
+        } catch (SecurityException e) {
+            return -1;
+        }
+    }
+
     public PolicyRegistry getPolicyRegistry() {
         return registry;
     }
@@ -72,6 +88,10 @@ public class Policy extends All {
      * <tt>false</tt> then the assertions are not normalized and it returns a
      * partially normalized version of self.
      * 
+     * <p>
+     * See normalize(PolicyRegistry, boolean) for how the normalized form is 
+     * kept by a PolicyRegistryImpl.
+     * 
      * @param deep
      *            a flag to indicate whether to normalize the assertions
      * @return a Policy that is normalized version of self
@@ -84,6 +104,13 @@ public class Policy extends All {
      * Returns a normalized version of self.If <tt>deep</tt> is set
      * <tt>false</tt> then the assertions are not normalized and it returns a
      * partially normalized version of self.
+     * <p>
+     * A PolicyRegistryImpl keeps the normalized form of each policy normalized
+     * with it, and later calls reuse that form. Each call returns operators of 
+     * its own, which may be changed, but the assertions in them are shared with
+     * the kept form. A policy, or a policy it refers to, that is changed in place
+     * after it was normalized is only normalized again once the registry is 
+     * changed or PolicyRegistryImpl.clearNormalizedForms() is called.
      * 
      * @param reg
      *            a PolicyRegistry from which the PolicyReferences are resolved
@@ -232,41 +259,29 @@ public class Policy extends All {
      * @return
      */
     public Iterator<List<Assertion>> getAlternatives() {
-        return new PolicyIterator(this, registry);
+        return getAlternatives(registry);
     }
     public Iterator<List<Assertion>> getAlternatives(PolicyRegistry reg) {
-        return new PolicyIterator(this, reg);
+        return getAlternatives(reg, DEFAULT_MAX_ALTERNATIVES);
     }
 
-    private class PolicyIterator implements Iterator<List<Assertion>> {
-        Iterator<PolicyComponent> alternatives;
-
-        public PolicyIterator(Policy policy, PolicyRegistry reg) {
-            policy = policy.normalize(reg, false);
-            ExactlyOne exactlyOne = (ExactlyOne) policy
-                    .getFirstPolicyComponent();
-            alternatives = exactlyOne.getPolicyComponents().iterator();
-        }
-
-        public boolean hasNext() {
-            return alternatives.hasNext();
-        }
-
-        public List<Assertion> next() {
-            List<PolicyComponent> pcs = ((All) alternatives.next()).getPolicyComponents();
-            List<Assertion> asserts = new ArrayList<Assertion>(pcs.size());
-            for (PolicyComponent pc : pcs) {
-                if (pc instanceof Assertion) {
-                    asserts.add((Assertion)pc);
-                }
-            }
-            return asserts;
-        }
-
-        public void remove() {
-            throw new UnsupportedOperationException(
-                    "policyAlternative.remove() is not supported");
-        }
+    /**
+     * Returns an Iterator over the Policy alternatives, as getAlternatives()
+     * does, after checking that there are no more than maxAlternatives of them.
+     * The alternatives are put together one at a time as the iterator is
+     * advanced.
+     * 
+     * @param reg
+     *            the registry to resolve the policy references with
+     * @param maxAlternatives
+     *            the largest number of alternatives allowed, or a negative
+     *            number for no limit
+     * @return an Iterator over the Policy alternatives
+     * @throws IllegalStateException
+     *             if there are more than maxAlternatives alternatives
+     */
+    public Iterator<List<Assertion>> getAlternatives(PolicyRegistry reg, long maxAlternatives) {
+        return new AlternativeIterator(this, reg, maxAlternatives);
     }
 
     /**
@@ -19,11 +19,19 @@
 
 package org.apache.neethi;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides a default implementation of PolicyRegistry interface.
+ * <p>
+ * The registry also keeps the normalized forms of the policies normalized with
+ * it, so that a policy, or one that many policies refer to, is normalized once.
+ * The forms are kept per Policy object for as long as the policy is in use, and
+ * are dropped when a policy is registered or removed. A policy that is changed
+ * after it was normalized needs clearNormalizedForms() to be called.
  */
 public class PolicyRegistryImpl implements PolicyRegistry {
     
@@ -31,6 +39,11 @@ public class PolicyRegistryImpl implements PolicyRegistry {
     
     private Map<String, Policy> reg = new ConcurrentHashMap<String, Policy>();
     
+    // the normalized forms of each policy; the first is the shallow one and the
+    // second the deep one
+    private Map<Policy, PolicyComponent[]> normalizedForms = 
+        Collections.synchronizedMap(new WeakHashMap<Policy, PolicyComponent[]>());
+    
     public PolicyRegistryImpl() {
     }
     
@@ -57,10 +70,39 @@ public class PolicyRegistryImpl implements PolicyRegistry {
 
     public void register(String key, Policy policy) {
         reg.put(key, policy);
+        clearNormalizedForms();
     }
     
     public void remove(String key) {
         reg.remove(key);
+        clearNormalizedForms();
+    }
+    
+    /**
+     * Drops the normalized forms of all policies.
+     */
+    public void clearNormalizedForms() {
+        normalizedForms.clear();
+    }
+    
+    /**
+     * Returns the normalized form of a policy, the ExactlyOne that the normalized 
+     * Policy holds, if the policy has been normalized with this registry before.
+     */
+    PolicyComponent getNormalizedForm(Policy policy, boolean deep) {
+        PolicyComponent[] forms = normalizedForms.get(policy);
+        return forms == null ? null : forms[deep ? 1 : 0];
+    }
+    
+    void putNormalizedForm(Policy policy, boolean deep, PolicyComponent normalized) {
+        synchronized (normalizedForms) {
+            PolicyComponent[] forms = normalizedForms.get(policy);
+            if (forms == null) {
+                forms = new PolicyComponent[2];
+                normalizedForms.put(policy, forms);
+            }
+            forms[deep ? 1 : 0] = normalized;
+        }
     }
     
     public void setParent(PolicyRegistry parent) {
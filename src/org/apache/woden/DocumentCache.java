@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package org.apache.woden;
+
+import java.io.IOException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * A cache of the parsed documents a WSDL reader imports or includes, WSDL
+ * descriptions as well as XML schemas, keyed by their resolved URI. The reader
+ * asks the cache for each such document and the cache decides whether its 
+ * copy is still current or the document has to be parsed again.
+ * <p>
+ * A cache can be shared by several readers and threads. To plug one into a 
+ * reader:
+ * <p>
+ * <code>reader.setProperty(WSDLReader.PROPERTY_DOCUMENT_CACHE, cache);</code>
+ */
+public interface DocumentCache {
+    
+    /**
+     * Parses a document for the cache.
+     */
+    public interface Parser {
+        
+        /**
+         * Parses the document.
+         * 
+         * @param source the document source, with the resolved URI as its system id
+         * @return the document, or null if it could not be parsed
+         */
+        public Document parse(InputSource source) throws WSDLException, IOException;
+    }
+    
+    /**
+     * Returns the document at a URI, a copy of the cached one if that is still 
+     * current, or else the document the parser reads.
+     * The caller may change the document it gets.
+     * 
+     * @param uri the resolved URI of the document
+     * @param parser parses the document if the cache has no current copy
+     * @return the document, or null if it could not be parsed
+     */
+    public Document getDocument(String uri, Parser parser) throws WSDLException, IOException;
+    
+    /**
+     * Drops the cached copy of a document, if there is one.
+     * 
+     * @param uri the resolved URI of the document
+     */
+    public void remove(String uri);
+    
+    /**
+     * Drops all the cached documents.
+     */
+    public void clear();
+    
+    /**
+     * @return the number of documents returned from the cache
+     */
+    public long getHitCount();
+    
+    /**
+     * @return the number of documents the cache had to have parsed
+     */
+    public long getMissCount();
+}
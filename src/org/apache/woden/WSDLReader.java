@@ -82,6 +82,28 @@ public interface WSDLReader {
     public static String FEATURE_CONTINUE_ON_ERROR =
         "http://ws.apache.org/woden/features/continue_on_error";
     
+    /**
+     * Set to <code>true</code> to check the WSDL validation assertions 
+     * on several threads, <code>false</code> otherwise. The errors are
+     * then reported in no particular order.
+     */
+    public static String FEATURE_PARALLEL_VALIDATION =
+        "http://ws.apache.org/woden/features/parallel_validation";
+    
+    /**
+     * Set to <code>true</code> to stop the WSDL validation once an
+     * error has been reported, <code>false</code> otherwise.
+     */
+    public static String FEATURE_VALIDATION_FAIL_FAST =
+        "http://ws.apache.org/woden/features/validation_fail_fast";
+    
+    /**
+     * Set to <code>true</code> to log the time each WSDL validation
+     * assertion takes, <code>false</code> otherwise.
+     */
+    public static String FEATURE_VALIDATION_TIMING =
+        "http://ws.apache.org/woden/features/validation_timing";
+    
     /**
      * Constants for reader configuration property names.
      * Properties have a value represented by an object. 
@@ -96,6 +118,14 @@ public interface WSDLReader {
     public static String PROPERTY_TYPE_SYSTEM_API = 
         "http://ws.apache.org/woden/property/type_system_api";
     
+    /**
+     * The DocumentCache the reader takes the documents it imports or includes
+     * from, or null to parse each of them anew. Validating reads do not use
+     * the cache, as the parser reports the schema validation errors.
+     */
+    public static String PROPERTY_DOCUMENT_CACHE = 
+        "http://ws.apache.org/woden/property/document_cache";
+    
     /**
      * A constant representing the W3C XML Schema type system. All
      * implementations of the Woden API must support W3C XML Schema.
@@ -26,6 +26,7 @@ import java.util.Map;
 
 import javax.xml.namespace.QName;
 
+import org.apache.woden.DocumentCache;
 import org.apache.woden.ErrorReporter;
 import org.apache.woden.WSDLException;
 import org.apache.woden.WSDLFactory;
@@ -86,11 +87,15 @@ public abstract class BaseWSDLReader implements WSDLReader {
     
     protected WSDLContext fWsdlContext;
     final protected ReaderFeatures features;
+    protected DocumentCache fDocumentCache;
 
     protected BaseWSDLReader(WSDLContext wsdlContext) throws WSDLException {
         //TODO decide what to do with fact impl name...re- only known use case is to change newDescription factory method
         fFactoryImplName = wsdlContext.wsdlFactory.getClass().getName();
         features = new ReaderFeatures();
+        
+        //the process-wide document cache, if the size of one has been configured
+        fDocumentCache = DocumentCacheImpl.getSharedCache();
 
         /* Establish the default URIResolver.
          * 
@@ -293,6 +298,15 @@ public abstract class BaseWSDLReader implements WSDLReader {
             throw new IllegalArgumentException(
                     fWsdlContext.errorReporter.getFormattedMessage("WSDL007", null));
         }
+        else if(name.equals(WSDLReader.PROPERTY_DOCUMENT_CACHE))
+        {
+            if(value != null && !(value instanceof DocumentCache))
+            {
+                throw new IllegalArgumentException("The value of the property " + name
+                        + " must be a " + DocumentCache.class.getName());
+            }
+            fDocumentCache = (DocumentCache)value;
+        }
         else if(name.equals("xyz"))
         {
             //TODO determine the required properties and
@@ -326,7 +340,11 @@ public abstract class BaseWSDLReader implements WSDLReader {
         //Return the property's value or throw an exception if the property
         //name is not recognized
         
-        if(name.equals("xyz"))
+        if(name.equals(WSDLReader.PROPERTY_DOCUMENT_CACHE))
+        {
+            return fDocumentCache;
+        }
+        else if(name.equals("xyz"))
         {
             //TODO determine the required properties and
             //create an if block for each one to get the value.
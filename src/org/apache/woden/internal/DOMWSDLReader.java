@@ -29,6 +29,7 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.apache.woden.DocumentCache;
 import org.apache.woden.ErrorReporter;
 import org.apache.woden.WSDLException;
 import org.apache.woden.WSDLReader;
@@ -234,7 +235,11 @@ public class DOMWSDLReader extends BaseWSDLReader {
                 compValidator.validate(descComp, getErrorReporter());
             }
             */
-            (new WSDLValidator()).validate(descComp, fWsdlContext);
+            WSDLValidator validator = new WSDLValidator();
+            validator.setParallel(features.getValue(WSDLReader.FEATURE_PARALLEL_VALIDATION));
+            validator.setFailFast(features.getValue(WSDLReader.FEATURE_VALIDATION_FAIL_FAST));
+            validator.setTiming(features.getValue(WSDLReader.FEATURE_VALIDATION_TIMING));
+            validator.validate(descComp, fWsdlContext);
         }
         
         return descComp;
@@ -656,7 +661,7 @@ public class DOMWSDLReader extends BaseWSDLReader {
             try {
                 URI resolvedURI = resolveURI(getURI(schemaURL));
                 resolvedLoc = resolvedURI.toString();
-                importedSchemaDoc = getDocument(new InputSource(resolvedLoc), resolvedLoc);
+                importedSchemaDoc = getReferencedDocument(resolvedLoc);
                 
             } catch (IOException e4) {
                 
@@ -808,6 +813,22 @@ public class DOMWSDLReader extends BaseWSDLReader {
         return doc;
     }
 
+    /*
+     * Retrieve a document a WSDL imports or includes, from the document cache 
+     * if there is one and the document is not validated while it is parsed.
+     */
+    private Document getReferencedDocument(final String location) throws WSDLException,
+            IOException {
+        if(fDocumentCache == null || features.getValue(WSDLReader.FEATURE_VALIDATION)) {
+            return getDocument(new InputSource(location), location);
+        }
+        return fDocumentCache.getDocument(location, new DocumentCache.Parser() {
+            public Document parse(InputSource source) throws WSDLException, IOException {
+                return getDocument(source, location);
+            }
+        });
+    }
+
     /*
      * Retrieve a WSDL document by resolving the location URI specified 
      * on a WSDL &lt;import&gt; or &lt;include&gt; element.
@@ -871,8 +892,7 @@ public class DOMWSDLReader extends BaseWSDLReader {
         {
             //not previously imported or included, so retrieve the WSDL.
             try {
-                Document doc = getDocument(
-                        new InputSource(locationStr), locationStr);
+                Document doc = getReferencedDocument(locationStr);
                 docEl = doc.getDocumentElement();
             } 
             catch (IOException e) 
@@ -0,0 +1,236 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package org.apache.woden.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.woden.DocumentCache;
+import org.apache.woden.WSDLException;
+import org.apache.woden.internal.util.PropertyUtils;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * A DocumentCache holding up to a given number of documents, dropping the least
+ * recently used one when it is full.
+ * <p>
+ * A cached document is current if its source still reports the last modified 
+ * time it had when the document was parsed. For a file that is checked without 
+ * opening it. A source that does not report a last modified time is read again
+ * and compared by a hash of its content, which saves the parsing only.
+ * <p>
+ * The cache keeps a copy of each document it parses and hands out copies of 
+ * that, so the documents the readers get are their own.
+ */
+public class DocumentCacheImpl implements DocumentCache {
+    
+    /*
+     * Setting this property to a number of documents makes the readers share a 
+     * process-wide cache of that size by default, see getSharedCache.
+     */
+    public static final String SHARED_CACHE_SIZE_PROPERTY = "org.apache.woden.documentCache.size";
+    
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+    
+    private static DocumentCache fSharedCache = null;
+    private static boolean fSharedCacheChecked = false;
+    
+    private final int fMaxSize;
+    private final Map fEntries;
+    private long fHits = 0;
+    private long fMisses = 0;
+    
+    /**
+     * @param maxSize the number of documents to keep at most
+     */
+    public DocumentCacheImpl(int maxSize) {
+        fMaxSize = maxSize;
+        fEntries = new LRUMap(maxSize);
+    }
+    
+    /**
+     * Returns the process-wide cache the readers use by default, or null if 
+     * the org.apache.woden.documentCache.size property is not set.
+     */
+    public static synchronized DocumentCache getSharedCache() {
+        if (!fSharedCacheChecked) {
+            fSharedCacheChecked = true;
+            String size = PropertyUtils.findProperty(SHARED_CACHE_SIZE_PROPERTY);
+            if (size != null) {
+                try {
+                    fSharedCache = new DocumentCacheImpl(Integer.parseInt(size.trim()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("The value of " + SHARED_CACHE_SIZE_PROPERTY
+                            + " is not a number: " + size);
+                }
+            }
+        }
+        return fSharedCache;
+    }
+    
+    /* (non-Javadoc)
+     * @see org.apache.woden.DocumentCache#getDocument(java.lang.String, org.apache.woden.DocumentCache.Parser)
+     */
+    public Document getDocument(String uri, Parser parser) throws WSDLException, IOException {
+        URL url;
+        try {
+            url = new URL(uri);
+        } catch (MalformedURLException e) {
+            //cannot tell whether a copy would be current
+            return parser.parse(new InputSource(uri));
+        }
+        
+        long lastModified = getLastModified(url);
+        byte[] content = null;
+        byte[] hash = null;
+        if (lastModified == 0) {
+            content = readContent(url);
+            hash = getHash(content);
+        }
+        
+        synchronized (this) {
+            Entry entry = (Entry) fEntries.get(uri);
+            if (entry != null && (lastModified != 0 
+                    ? entry.lastModified == lastModified 
+                    : Arrays.equals(entry.hash, hash))) {
+                fHits++;
+                return (Document) entry.document.cloneNode(true);
+            }
+            fMisses++;
+        }
+        
+        InputSource source;
+        if (content != null) {
+            source = new InputSource(new ByteArrayInputStream(content));
+            source.setSystemId(uri);
+        } else {
+            source = new InputSource(uri);
+        }
+        Document doc = parser.parse(source);
+        if (doc != null) {
+            //the copy is made before anyone else can use the document
+            Document copy = (Document) doc.cloneNode(true);
+            synchronized (this) {
+                fEntries.put(uri, new Entry(copy, lastModified, hash));
+            }
+        }
+        return doc;
+    }
+    
+    public synchronized void remove(String uri) {
+        fEntries.remove(uri);
+    }
+    
+    public synchronized void clear() {
+        fEntries.clear();
+    }
+    
+    public synchronized long getHitCount() {
+        return fHits;
+    }
+    
+    public synchronized long getMissCount() {
+        return fMisses;
+    }
+    
+    /*
+     * Returns the last modified time of a source, or 0 if it is not known.
+     */
+    private long getLastModified(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            return new File(URLDecoder.decode(url.getPath(), "UTF-8")).lastModified();
+        }
+        URLConnection connection = url.openConnection();
+        try {
+            return connection.getLastModified();
+        } finally {
+            //getLastModified may have opened the stream
+            try {
+                connection.getInputStream().close();
+            } catch (IOException e) {
+                //nothing to close
+            }
+        }
+    }
+    
+    private byte[] readContent(URL url) throws IOException {
+        InputStream in = url.openStream();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+    
+    private byte[] getHash(byte[] content) {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+    
+    /*
+     * A map dropping its least recently used entry once it holds more than
+     * maxSize entries.
+     */
+    private static class LRUMap extends LinkedHashMap {
+        private static final long serialVersionUID = 0;
+        
+        private final int fMaxSize;
+        
+        private LRUMap(int maxSize) {
+            super(16, 0.75f, true);
+            fMaxSize = maxSize;
+        }
+        
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > fMaxSize;
+        }
+    }
+    
+    private static class Entry {
+        private Document document;
+        private long lastModified;
+        private byte[] hash;
+        
+        private Entry(Document document, long lastModified, byte[] hash) {
+            this.document = document;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+}
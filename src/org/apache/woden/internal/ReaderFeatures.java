@@ -41,6 +41,9 @@ public class ReaderFeatures
 	public ReaderFeatures()
 	{
 	  values.put(WSDLReader.FEATURE_VALIDATION, off);
+	  values.put(WSDLReader.FEATURE_PARALLEL_VALIDATION, off);
+	  values.put(WSDLReader.FEATURE_VALIDATION_FAIL_FAST, off);
+	  values.put(WSDLReader.FEATURE_VALIDATION_TIMING, off);
 	}
 	
 	/**
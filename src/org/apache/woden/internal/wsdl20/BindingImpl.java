@@ -137,6 +137,7 @@ public class BindingImpl extends WSDLComponentImpl
      */
     public void setName(NCName name) {
         fName = name;
+        DescriptionImpl.elementModelChanged();
     }
 
     /* (non-Javadoc)
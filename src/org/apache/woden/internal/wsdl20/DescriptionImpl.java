@@ -17,6 +17,7 @@
 package org.apache.woden.internal.wsdl20;
 
 import java.net.URI;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -33,6 +34,7 @@ import org.apache.woden.wsdl20.ElementDeclaration;
 import org.apache.woden.wsdl20.Interface;
 import org.apache.woden.wsdl20.Service;
 import org.apache.woden.wsdl20.TypeDefinition;
+import org.apache.woden.wsdl20.WSDLComponent;
 import org.apache.woden.wsdl20.fragids.DescriptionPart;
 import org.apache.woden.wsdl20.fragids.FragmentIdentifier;
 import org.apache.woden.wsdl20.xml.BindingElement;
@@ -68,11 +70,21 @@ public class DescriptionImpl extends WSDLComponentImpl
     
     /*
      * WSDL Component model data (flattened properties of Description Component)
-     * TODO cache top-level components here with a flush-on-update mechanism
      */
     private List fAllElementDeclarations = new Vector();
     private List fAllTypeDefinitions = new Vector();
     
+    /*
+     * The flattened top-level components (interfaces, bindings, services) and the
+     * nested descriptions they come from. Built on first use and built again once
+     * the Element model of any description has changed since, as the flattened view
+     * also depends on the imported and included descriptions.
+     */
+    private TopLevelComponents fTopLevelComponents = null;
+    
+    private static final Object fModificationLock = new Object();
+    private static long fModificationCount = 0;
+    
     /*
      * WSDL Element model data
      */
@@ -112,46 +124,15 @@ public class DescriptionImpl extends WSDLComponentImpl
     
     /* (non-Javadoc)
      * @see org.apache.woden.wsdl20.Description#getInterfaces()
-     * 
-     * TODO performance to be addressed in this method. Suggest caching with
-     * some sort of notification-on-update to flush the cash and let lazy init
-     * reset it. But best to deal with performance after wsdl create/update has 
-     * been implemented, as we can then baseline the existing dynamic approach
-     * to test for correct behaviour after performance mods have been made. 
-     * (but see to do comment in getNestedDescriptions method too)
      */
     public Interface[] getInterfaces() 
     {
-        List allInterfaces = new Vector();
-        
-        //declared interfaces
-        for(Iterator i=fInterfaceElements.iterator(); i.hasNext(); )
-        {
-            Interface intface = (Interface)i.next();
-            if(!containsComponent(intface, allInterfaces)) {
-                ((InterfaceImpl)intface).setDescriptionComponent(this);
-                allInterfaces.add(intface);
-            }
-        }
-        
-        //nested interfaces
-        List nestedDescs = new Vector(getNestedDescriptions());
-        for(Iterator i=nestedDescs.iterator(); i.hasNext(); )
-        {
-            DescriptionElement desc = (DescriptionElement)i.next();
-            InterfaceElement[] interfaces = desc.getInterfaceElements();
-            for(int j=0; j<interfaces.length; j++)
-            {
-                Interface intface = (Interface)interfaces[j];
-                if(!containsComponent(intface, allInterfaces)) {
-                    ((InterfaceImpl)intface).setDescriptionComponent(this);
-                    allInterfaces.add(intface);
-                }
-            }
-        }
-        
+        List allInterfaces = getTopLevelComponents().fInterfaces;
         Interface[] array = new Interface[allInterfaces.size()];
         allInterfaces.toArray(array);
+        for(int i=0; i<array.length; i++) {
+            ((InterfaceImpl)array[i]).setDescriptionComponent(this);
+        }
         return array;
     }
 
@@ -164,15 +145,9 @@ public class DescriptionImpl extends WSDLComponentImpl
         
         if(name != null) 
         {
-            Interface[] interfaces = getInterfaces();
-            
-            for(int i=0; i<interfaces.length; i++)
-            {
-                if(name.equals(interfaces[i].getName()))
-                {
-                    intface = interfaces[i];
-                    break;
-                }
+            intface = (Interface)getTopLevelComponents().fInterfaceIndex.get(name);
+            if(intface != null) {
+                ((InterfaceImpl)intface).setDescriptionComponent(this);
             }
         }
         
@@ -181,41 +156,15 @@ public class DescriptionImpl extends WSDLComponentImpl
     
     /* (non-Javadoc)
      * @see org.apache.woden.wsdl20.Description#getBindings()
-     * 
-     * TODO performance to be addressed in this method - see ToDo in getInterface()
      */
     public Binding[] getBindings() 
     {
-        List allBindings = new Vector();
-        
-        //declared bindings
-        for(Iterator i=fBindingElements.iterator(); i.hasNext(); )
-        {
-            Binding binding = (Binding)i.next();
-            if(!containsComponent(binding, allBindings)) {
-                ((BindingImpl)binding).setDescriptionComponent(this);
-                allBindings.add(binding);
-            }
-        }
-        
-        //nested bindings
-        List nestedDescs = new Vector(getNestedDescriptions());
-        for(Iterator i=nestedDescs.iterator(); i.hasNext(); )
-        {
-            DescriptionElement desc = (DescriptionElement)i.next();
-            BindingElement[] bindings = desc.getBindingElements();
-            for(int j=0; j<bindings.length; j++)
-            {
-                Binding binding = (Binding)bindings[j];
-                if(!containsComponent(binding, allBindings)) {
-                    ((BindingImpl)binding).setDescriptionComponent(this);
-                    allBindings.add(binding);
-                }
-            }
-        }
-        
+        List allBindings = getTopLevelComponents().fBindings;
         Binding[] array = new Binding[allBindings.size()];
         allBindings.toArray(array);
+        for(int i=0; i<array.length; i++) {
+            ((BindingImpl)array[i]).setDescriptionComponent(this);
+        }
         return array;
     }
 
@@ -228,15 +177,9 @@ public class DescriptionImpl extends WSDLComponentImpl
         
         if(name != null) 
         {
-            Binding[] bindings = getBindings();
-            
-            for(int i=0; i<bindings.length; i++)
-            {
-                if(name.equals(bindings[i].getName()))
-                {
-                    binding = bindings[i];
-                    break;
-                }
+            binding = (Binding)getTopLevelComponents().fBindingIndex.get(name);
+            if(binding != null) {
+                ((BindingImpl)binding).setDescriptionComponent(this);
             }
         }
         
@@ -245,41 +188,15 @@ public class DescriptionImpl extends WSDLComponentImpl
     
     /* (non-Javadoc)
      * @see org.apache.woden.wsdl20.Description#getServices()
-     * 
-     * TODO performance to be addressed in this method - see ToDo in getInterface()
      */
     public Service[] getServices() 
     {
-        List allServices = new Vector();
-        
-        //declared services
-        for(Iterator i=fServiceElements.iterator(); i.hasNext(); )
-        {
-            Service service = (Service)i.next();
-            if(!containsComponent(service, allServices)) {
-                ((ServiceImpl)service).setDescriptionComponent(this);
-                allServices.add(service);
-            }
-        }
-        
-        //nested services
-        List nestedDescs = new Vector(getNestedDescriptions());
-        for(Iterator i=nestedDescs.iterator(); i.hasNext(); )
-        {
-            DescriptionElement desc = (DescriptionElement)i.next();
-            ServiceElement[] services = desc.getServiceElements();
-            for(int j=0; j<services.length; j++)
-            {
-                Service service = (Service)services[j];
-                if(!containsComponent(service, allServices)) {
-                    ((ServiceImpl)service).setDescriptionComponent(this);
-                    allServices.add(service);
-                }
-            }
-        }
-        
+        List allServices = getTopLevelComponents().fServices;
         Service[] array = new Service[allServices.size()];
         allServices.toArray(array);
+        for(int i=0; i<array.length; i++) {
+            ((ServiceImpl)array[i]).setDescriptionComponent(this);
+        }
         return array;
     }
 
@@ -292,15 +209,9 @@ public class DescriptionImpl extends WSDLComponentImpl
         
         if(name != null) 
         {
-            Service[] services = getServices();
-            
-            for(int i=0; i<services.length; i++)
-            {
-                if(name.equals(services[i].getName()))
-                {
-                    service = services[i];
-                    break;
-                }
+            service = (Service)getTopLevelComponents().fServiceIndex.get(name);
+            if(service != null) {
+                ((ServiceImpl)service).setDescriptionComponent(this);
             }
         }
         
@@ -398,6 +309,7 @@ public class DescriptionImpl extends WSDLComponentImpl
     
     public void setTargetNamespace(URI namespace) {
         fTargetNamespace = namespace;    
+        elementModelChanged();
     }
     
     public URI getTargetNamespace() {
@@ -463,6 +375,7 @@ public class DescriptionImpl extends WSDLComponentImpl
         ImportImpl importEl = new ImportImpl();
         fImportElements.add(importEl);
         importEl.setParentElement(this);
+        elementModelChanged();
         return importEl;
     }
     
@@ -470,6 +383,7 @@ public class DescriptionImpl extends WSDLComponentImpl
         IncludeImpl include = new IncludeImpl();
         fIncludeElements.add(include);
         include.setParentElement(this);
+        elementModelChanged();
         return include;
     }
     
@@ -477,6 +391,7 @@ public class DescriptionImpl extends WSDLComponentImpl
         InterfaceImpl intface = new InterfaceImpl();
         fInterfaceElements.add(intface);
         intface.setParentElement(this);
+        elementModelChanged();
         return intface; 
     }
     
@@ -484,6 +399,7 @@ public class DescriptionImpl extends WSDLComponentImpl
         BindingImpl binding = new BindingImpl();
         fBindingElements.add(binding);
         binding.setParentElement(this);
+        elementModelChanged();
         return binding;
     }
     
@@ -491,6 +407,7 @@ public class DescriptionImpl extends WSDLComponentImpl
         ServiceImpl service = new ServiceImpl();
         fServiceElements.add(service);
         service.setParentElement(this);
+        elementModelChanged();
         return service;
     }
     
@@ -551,6 +468,111 @@ public class DescriptionImpl extends WSDLComponentImpl
         fComponentsInitialized = false;
     }
     
+    /*
+     * Notes a change to the Element model that may change the flattened top-level
+     * components of any description. Package private, called by the setters of the
+     * names of the top-level elements and of the descriptions of imports and includes.
+     */
+    static void elementModelChanged() {
+        synchronized(fModificationLock) {
+            fModificationCount++;
+        }
+    }
+    
+    private static long getModificationCount() {
+        synchronized(fModificationLock) {
+            return fModificationCount;
+        }
+    }
+    
+    /*
+     * Returns the flattened top-level components, building them again if the
+     * Element model has changed since they were last built.
+     */
+    private synchronized TopLevelComponents getTopLevelComponents()
+    {
+        long modificationCount = getModificationCount();
+        if(fTopLevelComponents == null 
+                || fTopLevelComponents.fModificationCount != modificationCount)
+        {
+            TopLevelComponents components = new TopLevelComponents(modificationCount);
+            List nestedDescs = getNestedDescriptions();
+            
+            //declared components first, then the nested ones
+            addComponents(components.fInterfaces, components.fInterfaceIndex, fInterfaceElements);
+            addComponents(components.fBindings, components.fBindingIndex, fBindingElements);
+            addComponents(components.fServices, components.fServiceIndex, fServiceElements);
+            for(Iterator i=nestedDescs.iterator(); i.hasNext(); )
+            {
+                DescriptionElement desc = (DescriptionElement)i.next();
+                addComponents(components.fInterfaces, components.fInterfaceIndex, 
+                        Arrays.asList(desc.getInterfaceElements()));
+                addComponents(components.fBindings, components.fBindingIndex, 
+                        Arrays.asList(desc.getBindingElements()));
+                addComponents(components.fServices, components.fServiceIndex, 
+                        Arrays.asList(desc.getServiceElements()));
+            }
+            fTopLevelComponents = components;
+        }
+        return fTopLevelComponents;
+    }
+    
+    /*
+     * Adds the components that are not equivalent to one added already. Equivalent
+     * components have the same name, or an unnamed one may be equivalent to any,
+     * so each is only compared to those with its name and to the unnamed ones.
+     */
+    private void addComponents(List allComponents, Map index, List components)
+    {
+        for(Iterator i=components.iterator(); i.hasNext(); )
+        {
+            WSDLComponent comp = (WSDLComponent)i.next();
+            QName name = getComponentName(comp);
+            List sameName = (List)index.get(name);
+            List unnamed = (List)index.get(null);
+            if((sameName != null && containsComponent(comp, sameName))
+                    || (name != null && unnamed != null && containsComponent(comp, unnamed))) {
+                continue;
+            }
+            if(sameName == null) {
+                sameName = new Vector();
+                index.put(name, sameName);
+            }
+            sameName.add(comp);
+            allComponents.add(comp);
+        }
+    }
+    
+    private QName getComponentName(WSDLComponent comp)
+    {
+        if(comp instanceof Interface) {
+            return ((Interface)comp).getName();
+        } else if(comp instanceof Binding) {
+            return ((Binding)comp).getName();
+        } else {
+            return ((Service)comp).getName();
+        }
+    }
+    
+    /*
+     * The flattened top-level components, with an index from each name to the
+     * components with that name in the order they were found.
+     */
+    private static class TopLevelComponents
+    {
+        private long fModificationCount;
+        private List fInterfaces = new Vector();
+        private Map fInterfaceIndex = new HashMap();
+        private List fBindings = new Vector();
+        private Map fBindingIndex = new HashMap();
+        private List fServices = new Vector();
+        private Map fServiceIndex = new HashMap();
+        
+        private TopLevelComponents(long modificationCount) {
+            fModificationCount = modificationCount;
+        }
+    }
+    
     /*
      * This method returns the descriptions included by this description (using transitive closure)
      * and the descriptions for any namespaces imported directly by this description (i.e. not transitive).
@@ -558,8 +580,7 @@ public class DescriptionImpl extends WSDLComponentImpl
      * flattened collection of wsdl components available to this description.
      * 
      * TODO imports should be pervasive, components not limited to a single location attribute.
-     * TODO consider performance here (e.g. caching with flush-on-update notification) because this method
-     * will be used by getters for the top-level components (interfaces, bindings, services). 
+     * The result is kept with the top-level components, see getTopLevelComponents.
      */
     private List getNestedDescriptions()
     {
@@ -329,6 +329,7 @@ public class InterfaceImpl extends WSDLComponentImpl
      */
     public void setName(NCName name) {
         fName = name;
+        DescriptionImpl.elementModelChanged();
     }
     
     /* 
@@ -139,6 +139,7 @@ public class ServiceImpl extends WSDLComponentImpl
      */
     public void setName(NCName name) {
         fName = name;
+        DescriptionImpl.elementModelChanged();
     }
 
     /* (non-Javadoc)
@@ -73,6 +73,7 @@ public abstract class WSDLReferenceImpl extends DocumentableImpl
      */
     public void setDescriptionElement(DescriptionElement desc) {
         fDescriptionElement = desc;
+        DescriptionImpl.elementModelChanged();
     }
 
     /* (non-Javadoc)
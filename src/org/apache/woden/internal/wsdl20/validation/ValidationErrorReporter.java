@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+package org.apache.woden.internal.wsdl20.validation;
+
+import java.util.Locale;
+
+import org.apache.woden.ErrorHandler;
+import org.apache.woden.ErrorLocator;
+import org.apache.woden.ErrorReporter;
+import org.apache.woden.WSDLException;
+
+/**
+ * Passes the errors assertions report to the error reporter of the reader,
+ * one at a time so that assertions can run on several threads, and notes
+ * whether an error has been reported.
+ */
+class ValidationErrorReporter implements ErrorReporter {
+    
+    private ErrorReporter fErrorReporter;
+    private volatile boolean fErrorReported = false;
+    
+    ValidationErrorReporter(ErrorReporter errorReporter) {
+        this.fErrorReporter = errorReporter;
+    }
+    
+    /*
+     * Returns true if an error or fatal error has been reported.
+     */
+    boolean isErrorReported() {
+        return fErrorReported;
+    }
+    
+    public void reportError(ErrorLocator errLoc, String errorId, Object[] arguments, 
+            short severity) throws WSDLException {
+        synchronized(fErrorReporter) {
+            noteSeverity(severity);
+            fErrorReporter.reportError(errLoc, errorId, arguments, severity);
+        }
+    }
+    
+    public void reportError(ErrorLocator errLoc, String errorId, Object[] arguments, 
+            short severity, Exception exception) throws WSDLException {
+        synchronized(fErrorReporter) {
+            noteSeverity(severity);
+            fErrorReporter.reportError(errLoc, errorId, arguments, severity, exception);
+        }
+    }
+    
+    public void reportError(ErrorLocator errLoc, String errorId, String message, 
+            short severity) throws WSDLException {
+        synchronized(fErrorReporter) {
+            noteSeverity(severity);
+            fErrorReporter.reportError(errLoc, errorId, message, severity);
+        }
+    }
+    
+    public void reportError(ErrorLocator errLoc, String errorId, String message, 
+            short severity, Exception exception) throws WSDLException {
+        synchronized(fErrorReporter) {
+            noteSeverity(severity);
+            fErrorReporter.reportError(errLoc, errorId, message, severity, exception);
+        }
+    }
+    
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        fErrorReporter.setErrorHandler(errorHandler);
+    }
+    
+    public ErrorHandler getErrorHandler() {
+        return fErrorReporter.getErrorHandler();
+    }
+    
+    public void setLocale(Locale locale) {
+        fErrorReporter.setLocale(locale);
+    }
+    
+    public Locale getLocale() {
+        return fErrorReporter.getLocale();
+    }
+    
+    public String getFormattedMessage(String errorId, Object[] arguments) {
+        synchronized(fErrorReporter) {
+            return fErrorReporter.getFormattedMessage(errorId, arguments);
+        }
+    }
+    
+    private void noteSeverity(short severity) {
+        if(severity == SEVERITY_ERROR || severity == SEVERITY_FATAL_ERROR) {
+            fErrorReported = true;
+        }
+    }
+}
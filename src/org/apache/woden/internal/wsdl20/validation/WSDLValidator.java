@@ -16,12 +16,21 @@
  */
 package org.apache.woden.internal.wsdl20.validation;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
 
+import edu.emory.mathcs.backport.java.util.concurrent.Callable;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutionException;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutorService;
+import edu.emory.mathcs.backport.java.util.concurrent.Executors;
+import edu.emory.mathcs.backport.java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.woden.WSDLException;
 import org.apache.woden.internal.WSDLContext;
 import org.apache.woden.internal.wsdl20.assertions.Description1001;
@@ -47,18 +56,65 @@ import org.apache.woden.wsdl20.xml.DescriptionElement;
  */
 public class WSDLValidator {
     
+    private static final Log logger = LogFactory.getLog(WSDLValidator.class);
+    
     private WSDLContext fWsdlCtx;
     private WodenContext fWodenCtx;
+    private ValidationErrorReporter fErrorReporter;
     
     //not needed? ... private Map fAssertions;    //map of assertion id string -> AssertionInfo
     
     private Map fWsdlAsserts;   //map of target Class -> list of WSDL 2.0 Assertions
     private Map fExtAsserts;    //map of target Class -> list of extension Assertions
     
+    private boolean fParallel = false;
+    private boolean fFailFast = false;
+    private boolean fTiming = false;
+    
+    private Map fAssertionTimes = new HashMap();    //map of assertion id -> Long total millis
+    
+    /**
+     * Sets whether the assertions run on several threads. Each assertion is 
+     * checked against all its targets on one thread, so an assertion never runs 
+     * concurrently with itself, but different assertions do. The errors are then 
+     * reported in no particular order.
+     */
+    public void setParallel(boolean parallel) {
+        fParallel = parallel;
+    }
+    
+    /**
+     * Sets whether validation stops once an assertion has reported an error.
+     */
+    public void setFailFast(boolean failFast) {
+        fFailFast = failFast;
+    }
+    
+    /**
+     * Sets whether the time taken by each assertion is measured and logged.
+     */
+    public void setTiming(boolean timing) {
+        fTiming = timing;
+    }
+    
+    /**
+     * Returns the total time in milliseconds each assertion took in the last
+     * validation, keyed by assertion id. Empty unless timing is on.
+     */
+    public Map getAssertionTimes() {
+        synchronized(fAssertionTimes) {
+            return new HashMap(fAssertionTimes);
+        }
+    }
+    
     public void validate(Description description, WSDLContext wsdlContext) throws WSDLException {
         int len = 0;
         this.fWsdlCtx = wsdlContext;
-        this.fWodenCtx = new WodenContextImpl(fWsdlCtx.errorReporter, fWsdlCtx.uriResolver);
+        this.fErrorReporter = new ValidationErrorReporter(fWsdlCtx.errorReporter);
+        this.fWodenCtx = new WodenContextImpl(fErrorReporter, fWsdlCtx.uriResolver);
+        synchronized(fAssertionTimes) {
+            fAssertionTimes.clear();
+        }
                
         //setup the WSDL 2.0 assertions
         //TODO do this once per wsdl reader object, not per document
@@ -68,56 +124,175 @@ public class WSDLValidator {
         //TODO check - must be done per document in case ext reg has changed
         setupExtensionAssertions();
         
-        //walk the parts of the xml tree not represented in the component model, calling checkAssertions
-        //method for each element.
+        //walk the parts of the xml tree not represented in the component model, collecting
+        //the assertions to check for each element.
         // - i.e. description(s), import, include, types, documentation?
         
+        List checks = new Vector();
+        
         DescriptionElement descElem = description.toElement();
         
-        checkAssertions(DescriptionElement.class, descElem);
+        addChecks(checks, DescriptionElement.class, descElem);
         
         //check assertions for the Description component
         
-        checkAssertions(Description.class, description);
+        addChecks(checks, Description.class, description);
         
-        //walk the top-level component trees, calling checkAssertions for each component and for each 
+        //walk the top-level component trees, collecting the checks for each component and for each 
         //component.toElement().
         
         Interface[] intfaces = description.getInterfaces();
         len = intfaces.length;
         for(int i=0; i<len; i++) {
-            checkAssertions(Interface.class, intfaces[i]);
+            addChecks(checks, Interface.class, intfaces[i]);
+        }
+        
+        if(fParallel) {
+            runInParallel(checks);
+        } else {
+            runChecks(checks);
         }
         
+        if(fTiming) {
+            logAssertionTimes();
+        }
     }
     
     /*
-     * Invoke the validate() method on each assertion mapped to the target WSDL 2.0 object.
+     * Add a check of each assertion mapped to the target WSDL 2.0 object.
      * This object will be a WSDLComponent or a WSDLElement. 
      * Note: with the outstanding API review issue about merging the two WSDL models, might be
      * able to change the Object paramater to a Woden-specific type.
      */
-    private void checkAssertions(Class targetClass, Object target) throws WSDLException {
-        
-        Assertion a = null;
+    private void addChecks(List checks, Class targetClass, Object target) {
         
-        //Check WSDL 2.0 assertions
+        //WSDL 2.0 assertions
         List wsdlAsserts = (List)fWsdlAsserts.get(targetClass);
         if (wsdlAsserts != null) {
             for (Iterator i = wsdlAsserts.iterator(); i.hasNext();) {
-                a = (Assertion) i.next();
-                a.validate(target, fWodenCtx);
+                checks.add(new Check((Assertion) i.next(), target));
             }
         }
-        //Check extension assertions (get them from ExtensionRegistry)
+        //extension assertions (get them from ExtensionRegistry)
         List extAsserts = (List)fExtAsserts.get(targetClass);
         if (extAsserts != null) {
             for (Iterator i = extAsserts.iterator(); i.hasNext();) {
-                a = (Assertion) i.next();
-                a.validate(target, fWodenCtx);
+                checks.add(new Check((Assertion) i.next(), target));
+            }
+        }
+        
+    }
+    
+    /*
+     * Invoke the validate() method of each check in turn, until an error has been 
+     * reported if validation is to stop on the first error.
+     */
+    private void runChecks(List checks) throws WSDLException {
+        for (Iterator i = checks.iterator(); i.hasNext();) {
+            if (fFailFast && fErrorReporter.isErrorReported()) {
+                return;
+            }
+            Check check = (Check) i.next();
+            if (fTiming) {
+                long start = System.currentTimeMillis();
+                check.assertion.validate(check.target, fWodenCtx);
+                addAssertionTime(check.assertion, System.currentTimeMillis() - start);
+            } else {
+                check.assertion.validate(check.target, fWodenCtx);
+            }
+        }
+    }
+    
+    /*
+     * Partition the checks by assertion and run the partitions on a thread pool.
+     */
+    private void runInParallel(List checks) throws WSDLException {
+        List partitions = new Vector();
+        Map partitionsByAssertion = new HashMap();
+        for (Iterator i = checks.iterator(); i.hasNext();) {
+            Check check = (Check) i.next();
+            List partition = (List) partitionsByAssertion.get(check.assertion);
+            if (partition == null) {
+                partition = new Vector();
+                partitionsByAssertion.put(check.assertion, partition);
+                partitions.add(partition);
             }
+            partition.add(check);
         }
         
+        int threadCount = Math.min(partitions.size(), 
+                Runtime.getRuntime().availableProcessors());
+        if (threadCount <= 1) {
+            runChecks(checks);
+            return;
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List futures = new Vector();
+            for (Iterator i = partitions.iterator(); i.hasNext();) {
+                final List partition = (List) i.next();
+                futures.add(executor.submit(new Callable() {
+                    public Object call() throws Exception {
+                        runChecks(partition);
+                        return null;
+                    }
+                }));
+            }
+            for (Iterator i = futures.iterator(); i.hasNext();) {
+                try {
+                    ((Future) i.next()).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof WSDLException) {
+                        throw (WSDLException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new WSDLException(WSDLException.OTHER_ERROR, cause.getMessage(), cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WSDLException(WSDLException.OTHER_ERROR, e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private void addAssertionTime(Assertion assertion, long millis) {
+        synchronized(fAssertionTimes) {
+            Long total = (Long) fAssertionTimes.get(assertion.getId());
+            fAssertionTimes.put(assertion.getId(), 
+                    new Long(total == null ? millis : total.longValue() + millis));
+        }
+    }
+    
+    private void logAssertionTimes() {
+        Map times = getAssertionTimes();
+        List ids = new Vector(times.keySet());
+        Collections.sort(ids);
+        StringBuffer report = new StringBuffer("Assertion times (ms):");
+        for (Iterator i = ids.iterator(); i.hasNext();) {
+            String id = (String) i.next();
+            report.append(' ').append(id).append('=').append(times.get(id));
+        }
+        logger.info(report.toString());
+    }
+    
+    /*
+     * An assertion to check against a target WSDL 2.0 object.
+     */
+    private static class Check {
+        private Assertion assertion;
+        private Object target;
+        
+        private Check(Assertion assertion, Object target) {
+            this.assertion = assertion;
+            this.target = target;
+        }
     }
     
     private void setupWSDLAssertions() {
@@ -23,6 +23,7 @@ import org.apache.ws.commons.schema.XmlSchemaCollection.SchemaKey;
 import org.apache.ws.commons.schema.constants.Constants;
 import org.apache.ws.commons.schema.extensions.ExtensionRegistry;
 import org.apache.ws.commons.schema.utils.NodeNamespaceContext;
+import org.apache.ws.commons.schema.utils.QNamePool;
 import org.apache.ws.commons.schema.utils.TargetNamespaceValidator;
 import org.apache.ws.commons.schema.utils.XDOMUtil;
 import org.apache.ws.commons.schema.utils.DOMUtil;
@@ -42,6 +43,12 @@ public class SchemaBuilder {
 	private final TargetNamespaceValidator validator;
 	DocumentBuilderFactory docFac;
 
+	/**
+	 * The document the markup kept by the schema objects is copied to, so the
+	 * document being read does not stay reachable from the schema
+	 */
+	private Document markupDoc;
+
 	/**
 	 * The extension registry to be used while building the
 	 * schema model
@@ -92,7 +99,11 @@ public class SchemaBuilder {
 	 */
 	XmlSchema handleXmlSchemaElement(Element schemaEl, String uri) {
 		// get all the attributes along with the namespace declns
-		schema.setNamespaceContext(new NodeNamespaceContext(schemaEl));
+		NodeNamespaceContext namespaceContext = new NodeNamespaceContext(schemaEl);
+		if (!collection.isRetainDocuments()) {
+			namespaceContext.detach();
+		}
+		schema.setNamespaceContext(namespaceContext);
 		setNamespaceAttributes(schema, schemaEl);
 
 		XmlSchemaCollection.SchemaKey schemaKey = new XmlSchemaCollection.SchemaKey(
@@ -158,25 +169,11 @@ public class SchemaBuilder {
 
 			// String elPrefix = el.getPrefix() == null ? "" : el.getPrefix();
 			//if(elPrefix.equals(schema.schema_ns_prefix)) {
-			if (el.getLocalName().equals("simpleType")) {
-				XmlSchemaType type = handleSimpleType(schema, el, schemaEl);
-				schema.addType(type);
-				schema.items.add(type);
-				collection.resolveType(type.getQName(), type);
-			} else if (el.getLocalName().equals("complexType")) {
-				XmlSchemaType type = handleComplexType(schema, el, schemaEl);
-				schema.addType(type);
-				schema.items.add(type);
-				collection.resolveType(type.getQName(), type);
+			if (el.getLocalName().equals("simpleType")
+					|| el.getLocalName().equals("complexType")) {
+				handleTopLevelComponent(XmlSchemaCollection.TYPE, el, schemaEl);
 			} else if (el.getLocalName().equals("element")) {
-				XmlSchemaElement element = handleElement(schema, el, schemaEl,
-						true);
-				if (element.qualifiedName != null)
-					schema.elements.collection.put(element.qualifiedName,
-							element);
-				else if (element.refName != null)
-					schema.elements.collection.put(element.refName, element);
-				schema.items.add(element);
+				handleTopLevelComponent(XmlSchemaCollection.ELEMENT, el, schemaEl);
 			} else if (el.getLocalName().equals("include")) {
 				XmlSchemaInclude include = handleInclude(schema, el, schemaEl);
 				schema.includes.add(include);
@@ -189,26 +186,18 @@ public class SchemaBuilder {
 				schema.items.add(schemaImport);
 
 			} else if (el.getLocalName().equals("group")) {
-				XmlSchemaGroup group = handleGroup(schema, el, schemaEl);
-				schema.groups.collection.put(group.name, group);
-				schema.items.add(group);
+				handleTopLevelComponent(XmlSchemaCollection.GROUP, el, schemaEl);
 			} else if (el.getLocalName().equals("attributeGroup")) {
-				XmlSchemaAttributeGroup group = handleAttributeGroup(schema,
-						el, schemaEl);
-				schema.attributeGroups.collection.put(group.name, group);
-				schema.items.add(group);
+				handleTopLevelComponent(XmlSchemaCollection.ATTRIBUTE_GROUP, el, schemaEl);
 			} else if (el.getLocalName().equals("attribute")) {
-				XmlSchemaAttribute attr = handleAttribute(schema, el, schemaEl,
-						true); //pass true to indicate that it is a top level child
-				schema.attributes.collection.put(attr.qualifiedName, attr);
-				schema.items.add(attr);
+				handleTopLevelComponent(XmlSchemaCollection.ATTRIBUTE, el, schemaEl);
 			} else if (el.getLocalName().equals("redefine")) {
 				XmlSchemaRedefine redefine = handleRedefine(schema, el,
 						schemaEl);
 				schema.includes.add(redefine);
 			} else if (el.getLocalName().equals("notation")) {
 				XmlSchemaNotation notation = handleNotation(el);
-				schema.notations.collection.put(new QName(schema
+				schema.notations.add(QNamePool.getQName(schema
 						.getTargetNamespace(), notation.name), notation);
 				schema.items.add(notation);
 			} else if (el.getLocalName().equals("annotation")) {
@@ -223,6 +212,154 @@ public class SchemaBuilder {
 		return schema;
 	}
 
+	/**
+	 * Handles a global type, element, group, attribute group or attribute.
+	 * In the lazy build mode of the collection a named component is only
+	 * recorded, and built when it is first looked up; see
+	 * XmlSchemaCollection.setLazyBuild.
+	 * @param kind the kind of the component, one of the XmlSchemaCollection kinds
+	 * @param el
+	 * @param schemaEl
+	 */
+	private void handleTopLevelComponent(int kind, Element el, Element schemaEl) {
+		if (collection.isLazyBuild() && el.hasAttribute("name")) {
+			String name = el.getAttribute("name");
+			QName qName;
+			XmlSchemaObjectTable table;
+			switch (kind) {
+			case XmlSchemaCollection.TYPE:
+				qName = QNamePool.getQName(schema.logicalTargetNamespace, name);
+				table = schema.schemaTypes;
+				if (table.contains(qName)) {
+					// as addType does
+					throw new XmlSchemaException(" Schema for namespace '"
+							+ schema.syntacticalTargetNamespace
+							+ "' already contains type '" + name + "'");
+				}
+				break;
+			case XmlSchemaCollection.ELEMENT:
+				qName = newLocalQName(name);
+				table = schema.elements;
+				break;
+			case XmlSchemaCollection.GROUP:
+				qName = QNamePool.getQName(schema.getTargetNamespace(), name);
+				table = schema.groups;
+				break;
+			case XmlSchemaCollection.ATTRIBUTE_GROUP:
+				qName = QNamePool.getQName(schema.getTargetNamespace(), name);
+				table = schema.attributeGroups;
+				break;
+			default:
+				qName = newLocalQName(name);
+				table = schema.attributes;
+				break;
+			}
+			DeferredComponent component = new DeferredComponent(kind, qName,
+					table, el, schemaEl, schema.items.getCount()
+							+ schema.getDeferredItemCount());
+			schema.addDeferredItem(component);
+			table.addDeferred(qName, component);
+		} else {
+			schema.items.add(buildTopLevelComponent(kind, el, schemaEl));
+		}
+	}
+
+	/**
+	 * Builds a global type, element, group, attribute group or attribute
+	 * and adds it to its table, but not to the items of the schema.
+	 * @param kind the kind of the component, one of the XmlSchemaCollection kinds
+	 * @param el
+	 * @param schemaEl
+	 * @return the component
+	 */
+	private XmlSchemaObject buildTopLevelComponent(int kind, Element el,
+			Element schemaEl) {
+		switch (kind) {
+		case XmlSchemaCollection.TYPE:
+			XmlSchemaType type = el.getLocalName().equals("simpleType")
+					? (XmlSchemaType) handleSimpleType(schema, el, schemaEl)
+					: handleComplexType(schema, el, schemaEl);
+			schema.addType(type);
+			collection.resolveType(type.getQName(), type);
+			return type;
+		case XmlSchemaCollection.ELEMENT:
+			XmlSchemaElement element = handleElement(schema, el, schemaEl,
+					true);
+			if (element.qualifiedName != null)
+				schema.elements.add(element.qualifiedName, element);
+			else if (element.refName != null)
+				schema.elements.add(element.refName, element);
+			return element;
+		case XmlSchemaCollection.GROUP:
+			XmlSchemaGroup group = handleGroup(schema, el, schemaEl);
+			schema.groups.add(group.name, group);
+			return group;
+		case XmlSchemaCollection.ATTRIBUTE_GROUP:
+			XmlSchemaAttributeGroup attributeGroup = handleAttributeGroup(
+					schema, el, schemaEl);
+			schema.attributeGroups.add(attributeGroup.name, attributeGroup);
+			return attributeGroup;
+		default:
+			XmlSchemaAttribute attr = handleAttribute(schema, el, schemaEl,
+					true); //pass true to indicate that it is a top level child
+			schema.attributes.add(attr.qualifiedName, attr);
+			return attr;
+		}
+	}
+
+	/**
+	 * A global component of the lazy build mode, recorded while the schema
+	 * is read and built the first time it is looked up. Until then it holds
+	 * on to its element of the schema document.
+	 */
+	class DeferredComponent {
+
+		private int kind;
+		private QName name;
+		private XmlSchemaObjectTable table;
+		private Element el;
+		private Element schemaEl;
+		private XmlSchemaObject component;
+
+		/** the index of the component among the items of the schema */
+		int itemIndex;
+
+		DeferredComponent(int kind, QName name, XmlSchemaObjectTable table,
+				Element el, Element schemaEl, int itemIndex) {
+			this.kind = kind;
+			this.name = name;
+			this.table = table;
+			this.el = el;
+			this.schemaEl = schemaEl;
+			this.itemIndex = itemIndex;
+		}
+
+		/**
+		 * Builds the component. Called by the table, which no longer lists it
+		 * as deferred, so a lookup of the component while it is being built
+		 * finds nothing, as in the eager build.
+		 */
+		void build() {
+			component = buildTopLevelComponent(kind, el, schemaEl);
+			el = null;
+			schemaEl = null;
+		}
+
+		/**
+		 * Gets the component, building it if nobody has looked it up yet.
+		 */
+		XmlSchemaObject getComponent() {
+			if (component == null) {
+				table.getItem(name);
+			}
+			if (component == null) {
+				// a later global component of the same name took its place
+				build();
+			}
+			return component;
+		}
+	}
+
 	private XmlSchemaNotation handleNotation(Element notationEl) {
 
 		XmlSchemaNotation notation = new XmlSchemaNotation();
@@ -292,23 +429,23 @@ public class SchemaBuilder {
 			if (el.getLocalName().equals("simpleType")) {
 				XmlSchemaType type = handleSimpleType(schema, el, schemaEl);
 
-				redefine.schemaTypes.collection.put(type.getQName(), type);
+				redefine.schemaTypes.add(type.getQName(), type);
 				redefine.items.add(type);
 			} else if (el.getLocalName().equals("complexType")) {
 
 				XmlSchemaType type = handleComplexType(schema, el, schemaEl);
 
-				redefine.schemaTypes.collection.put(type.getQName(), type);
+				redefine.schemaTypes.add(type.getQName(), type);
 				redefine.items.add(type);
 			} else if (el.getLocalName().equals("group")) {
 				XmlSchemaGroup group = handleGroup(schema, el, schemaEl);
-				redefine.groups.collection.put(group.name, group);
+				redefine.groups.add(group.name, group);
 				redefine.items.add(group);
 			} else if (el.getLocalName().equals("attributeGroup")) {
 				XmlSchemaAttributeGroup group = handleAttributeGroup(schema,
 						el, schemaEl);
 
-				redefine.attributeGroups.collection.put(group.name, group);
+				redefine.attributeGroups.add(group.name, group);
 				redefine.items.add(group);
 			} else if (el.getLocalName().equals("annotation")) {
 				XmlSchemaAnnotation annotation = handleAnnotation(el);
@@ -533,7 +670,7 @@ public class SchemaBuilder {
 		if (offset == -1) {
 			uri = pContext.getNamespaceURI(Constants.DEFAULT_NS_PREFIX);
 			if (Constants.NULL_NS_URI.equals(uri)) {
-				return new QName(Constants.NULL_NS_URI, pName);
+				return QNamePool.getQName(Constants.NULL_NS_URI, pName);
 			}
 			localName = pName;
 			prefix = Constants.DEFAULT_NS_PREFIX;
@@ -554,7 +691,7 @@ public class SchemaBuilder {
 			}
 			localName = pName.substring(offset + 1);
 		}
-		return new QName(uri, localName, prefix);
+		return QNamePool.getQName(uri, localName, prefix);
 	}
 
 	/**
@@ -1038,7 +1175,7 @@ public class SchemaBuilder {
 			Element schemaEl) {
 
 		XmlSchemaGroup group = new XmlSchemaGroup();
-		group.name = new QName(schema.getTargetNamespace(), groupEl
+		group.name = QNamePool.getQName(schema.getTargetNamespace(), groupEl
 				.getAttribute("name"));
 
 		for (Element el = XDOMUtil.getFirstChildElementNS(groupEl,
@@ -1064,7 +1201,7 @@ public class SchemaBuilder {
 		XmlSchemaAttributeGroup attrGroup = new XmlSchemaAttributeGroup();
 
 		if (groupEl.hasAttribute("name"))
-			attrGroup.name = new QName(schema.getTargetNamespace(), groupEl
+			attrGroup.name = QNamePool.getQName(schema.getTargetNamespace(), groupEl
 					.getAttribute("name"));
 		if (groupEl.hasAttribute("id"))
 			attrGroup.id = groupEl.getAttribute("id");
@@ -1163,7 +1300,7 @@ public class SchemaBuilder {
 		if (uri == null) {
 			uri = Constants.NULL_NS_URI;
 		}
-		return new QName(uri, pLocalName);
+		return QNamePool.getQName(uri, pLocalName);
 	}
 
 	/**
@@ -1209,7 +1346,7 @@ public class SchemaBuilder {
 				attr.qualifiedName = newLocalQName(name);
 			} else {
 				attr.qualifiedName = (isQualified) ? newLocalQName(name)
-						: new QName(name);
+						: QNamePool.getQName(Constants.NULL_NS_URI, name);
 			}
 		}
 
@@ -1288,8 +1425,13 @@ public class SchemaBuilder {
 			}
 		}
 
-		if (attrs.size() > 0)
-			attr.setUnhandledAttributes((Attr[]) attrs.toArray(new Attr[0]));
+		if (attrs.size() > 0) {
+			Attr[] unhandledAttributes = new Attr[attrs.size()];
+			for (int i = 0; i < unhandledAttributes.length; i++) {
+				unhandledAttributes[i] = (Attr) detach((Attr) attrs.get(i));
+			}
+			attr.setUnhandledAttributes(unhandledAttributes);
+		}
 
 		//process extra attributes and elements
 		processExtensibilityComponents(attr, attrEl);
@@ -1352,7 +1494,7 @@ public class SchemaBuilder {
 		if (element.name != null) {
 			final String name = element.name;
 			element.qualifiedName = (isQualified || isGlobal) ? newLocalQName(name)
-					: new QName(Constants.NULL_NS_URI, name);
+					: QNamePool.getQName(Constants.NULL_NS_URI, name);
 		}
 
 		Element annotationEl = XDOMUtil.getFirstChildElementNS(el,
@@ -1734,11 +1876,41 @@ public class SchemaBuilder {
 
 	private NodeList getChildren(Element content) {
 		NodeList childs = content.getChildNodes();
-		if (childs.getLength() > 0)
-			return childs;
+		if (childs.getLength() > 0) {
+			if (collection.isRetainDocuments()) {
+				return childs;
+			}
+			DocumentFragment markup = getMarkupDocument(content).createDocumentFragment();
+			for (int i = 0; i < childs.getLength(); i++) {
+				markup.appendChild(detach(childs.item(i)));
+			}
+			return markup.getChildNodes();
+		}
 		return null;
 	}
 
+	/**
+	 * Copies a node to be kept by a schema object out of the document being read,
+	 * unless the collection retains the documents.
+	 * @param node
+	 * @return the node or its copy
+	 */
+	private Node detach(Node node) {
+		if (collection.isRetainDocuments()) {
+			return node;
+		}
+		return getMarkupDocument(node).importNode(node, true);
+	}
+
+	private Document getMarkupDocument(Node node) {
+		if (markupDoc == null) {
+			Document ownerDoc = node.getNodeType() == Node.DOCUMENT_NODE ? (Document) node
+					: node.getOwnerDocument();
+			markupDoc = ownerDoc.getImplementation().createDocument(null, null, null);
+		}
+		return markupDoc;
+	}
+
 	long getMinOccurs(Element el) {
 		try {
 			if (el.getAttributeNode("minOccurs") != null) {
@@ -1893,8 +2065,8 @@ public class SchemaBuilder {
 						!Constants.URI_2001_SCHEMA_XSD.equals(namespaceURI))
 				//does not belong to the schema namespace by any chance!
 				{
-					QName qName = new QName(namespaceURI, name);
-					extReg.deserializeExtension(schemaObject, qName, attribute);
+					QName qName = QNamePool.getQName(namespaceURI, name);
+					extReg.deserializeExtension(schemaObject, qName, detach(attribute));
 
 				}
 			}
@@ -1914,9 +2086,9 @@ public class SchemaBuilder {
 									.equals(namespaceURI))
 					//does not belong to the schema namespace
 					{
-						QName qName = new QName(namespaceURI, name);
+						QName qName = QNamePool.getQName(namespaceURI, name);
 						extReg.deserializeExtension(schemaObject, qName,
-								extElement);
+								detach(extElement));
 
 					}
 				}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ws.commons.schema;
+
+import edu.emory.mathcs.backport.java.util.concurrent.Callable;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutionException;
+import edu.emory.mathcs.backport.java.util.concurrent.ExecutorService;
+import edu.emory.mathcs.backport.java.util.concurrent.Executors;
+import edu.emory.mathcs.backport.java.util.concurrent.Future;
+import org.apache.ws.commons.schema.utils.XDOMUtil;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses the documents a schema imports, includes or redefines, and the ones those refer to,
+ * on several threads before the schema is built. The references are resolved the way
+ * SchemaBuilder resolves them, on the calling thread; only the parsing runs on the others.
+ * SchemaBuilder then takes the parsed documents instead of parsing them itself, so the
+ * schemas are built the same way and in the same order as without prefetching.
+ * <p/>
+ * A document that cannot be fetched or parsed is left to SchemaBuilder, which reports the
+ * error as usual.
+ */
+class SchemaPrefetcher {
+
+    private XmlSchemaCollection collection;
+    private int threadCount;
+
+    /** system ID to the parsed Document, until SchemaBuilder takes it */
+    private Map documents = new HashMap();
+
+    SchemaPrefetcher(XmlSchemaCollection collection, int threadCount) {
+        this.collection = collection;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Parses all the documents reachable from a schema element.
+     *
+     * @param schemaEl the schema element
+     * @param uri      the URI of the schema, or null
+     */
+    void prefetch(Element schemaEl, String uri) {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            LinkedList pending = new LinkedList();
+            Set submitted = new HashSet();
+            submitReferences(schemaEl, uri, getTargetNamespace(schemaEl, ""),
+                             executor, pending, submitted);
+            while (!pending.isEmpty()) {
+                ParseTask task = (ParseTask) pending.removeFirst();
+                Document doc;
+                try {
+                    doc = (Document) task.future.get();
+                } catch (ExecutionException e) {
+                    continue;
+                }
+                synchronized (documents) {
+                    documents.put(task.systemId, doc);
+                }
+                Element el = doc.getDocumentElement();
+                if (el != null) {
+                    submitReferences(el, task.systemId,
+                                     getTargetNamespace(el, task.namespace),
+                                     executor, pending, submitted);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Takes a prefetched document.
+     *
+     * @param systemId the system ID of the document
+     * @return the document, or null if it has not been prefetched
+     */
+    Document take(String systemId) {
+        if (systemId == null) {
+            return null;
+        }
+        synchronized (documents) {
+            return (Document) documents.remove(systemId);
+        }
+    }
+
+    /**
+     * Starts parsing the documents a schema element refers to.
+     *
+     * @param schemaEl  the schema element
+     * @param uri       the URI of the schema, the base of its schema locations
+     * @param namespace the target namespace the schema is built with
+     */
+    private void submitReferences(Element schemaEl, String uri, String namespace,
+                                  ExecutorService executor, LinkedList pending, Set submitted) {
+        String baseUri = uri != null ? uri : collection.baseUri;
+        for (Element el = XDOMUtil.getFirstChildElementNS(schemaEl, XmlSchema.SCHEMA_NS);
+             el != null;
+             el = XDOMUtil.getNextSiblingElementNS(el, XmlSchema.SCHEMA_NS)) {
+            String referencedNamespace;
+            if (el.getLocalName().equals("import")) {
+                referencedNamespace = el.getAttribute("namespace");
+            } else if (el.getLocalName().equals("include")
+                    || el.getLocalName().equals("redefine")) {
+                // included schemas take the namespace of the including one
+                referencedNamespace = namespace;
+            } else {
+                continue;
+            }
+            String schemaLocation = el.getAttribute("schemaLocation");
+            if (schemaLocation == null || "".equals(schemaLocation)) {
+                continue;
+            }
+            InputSource source = collection.schemaResolver.resolveEntity(
+                    referencedNamespace, schemaLocation, baseUri);
+            // a source with a stream of its own can be read once only, so it is left to
+            // SchemaBuilder
+            if (source == null || source.getSystemId() == null
+                    || source.getByteStream() != null || source.getCharacterStream() != null) {
+                continue;
+            }
+            XmlSchemaCollection.SchemaKey key = new XmlSchemaCollection.SchemaKey(
+                    referencedNamespace, source.getSystemId());
+            if (collection.getSchema(key) != null || !submitted.add(source.getSystemId())) {
+                continue;
+            }
+            ParseTask task = new ParseTask(source, referencedNamespace);
+            task.future = executor.submit(task);
+            pending.add(task);
+        }
+    }
+
+    private String getTargetNamespace(Element schemaEl, String includingNamespace) {
+        String targetNamespace = schemaEl.getAttribute("targetNamespace");
+        if (targetNamespace == null || "".equals(targetNamespace)) {
+            return includingNamespace;
+        }
+        return targetNamespace;
+    }
+
+    /** Parses one document */
+    private class ParseTask implements Callable {
+
+        private InputSource source;
+        private String systemId;
+        private String namespace;
+        private Future future;
+
+        ParseTask(InputSource source, String namespace) {
+            this.source = source;
+            this.systemId = source.getSystemId();
+            this.namespace = namespace;
+        }
+
+        public Object call() throws Exception {
+            DocumentBuilderFactory docFac = DocumentBuilderFactory.newInstance();
+            docFac.setNamespaceAware(true);
+            return collection.parse(source, docFac.newDocumentBuilder());
+        }
+    }
+}
@@ -19,17 +19,26 @@
 
 package org.apache.ws.commons.schema;
 
+import org.apache.axiom.om.util.StAXUtils;
 import org.apache.ws.commons.schema.constants.Constants;
 import org.apache.ws.commons.schema.utils.NamespaceContextOwner;
 import org.apache.ws.commons.schema.utils.NamespacePrefixList;
+import org.apache.ws.commons.schema.utils.QNamePool;
+import org.apache.ws.commons.schema.utils.XMLStreamCopier;
 import org.w3c.dom.Document;
 
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -68,11 +77,31 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
     XmlSchemaCollection parent;
 
     private NamespacePrefixList namespaceContext;
+    /**
+     * The schemas reachable from this one, kept while the graphVersion of the parent
+     * collection stays the same
+     */
+    private Reachability reachability;
+    private int reachabilityVersion;
     //keep the encoding of the input
     private String inputEncoding;
 
+    /**
+     * The serialized forms of this schema, keyed by the output options they
+     * were written with (null for the default ones). Dropped on every change
+     * of the schema, see invalidateSerializedForm.
+     */
+    private Map serializedForms = new HashMap();
+
+    /**
+     * The global components of the lazy build mode that are not among the
+     * items yet, in document order, or null if there are none
+     */
+    private List deferredItems;
+
     public void setInputEncoding(String encoding){
         this.inputEncoding = encoding;
+        invalidateSerializedForm();
     }
     /**
      * Creates new XmlSchema
@@ -106,16 +135,16 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
         elementFormDefault = new XmlSchemaForm(XmlSchemaForm.UNQUALIFIED);
         blockDefault = new XmlSchemaDerivationMethod(Constants.BlockConstants.NONE);
         finalDefault = new XmlSchemaDerivationMethod(Constants.BlockConstants.NONE);
-        items = new XmlSchemaObjectCollection();
-        includes = new XmlSchemaObjectCollection();
-        elements = new XmlSchemaObjectTable();
-        attributeGroups = new XmlSchemaObjectTable();
-        attributes = new XmlSchemaObjectTable();
-        groups = new XmlSchemaObjectTable();
-        notations = new XmlSchemaObjectTable();
-        schemaTypes = new XmlSchemaObjectTable();
-
-        syntacticalTargetNamespace = logicalTargetNamespace = namespace;
+        items = new TrackingCollection(false);
+        includes = new TrackingCollection(true);
+        elements = new XmlSchemaObjectTable(this, XmlSchemaCollection.ELEMENT);
+        attributeGroups = new XmlSchemaObjectTable(this, XmlSchemaCollection.ATTRIBUTE_GROUP);
+        attributes = new XmlSchemaObjectTable(this, XmlSchemaCollection.ATTRIBUTE);
+        groups = new XmlSchemaObjectTable(this, XmlSchemaCollection.GROUP);
+        notations = new XmlSchemaObjectTable(this, XmlSchemaObjectTable.NOT_INDEXED);
+        schemaTypes = new XmlSchemaObjectTable(this, XmlSchemaCollection.TYPE);
+
+        syntacticalTargetNamespace = logicalTargetNamespace = QNamePool.intern(namespace);
         if (logicalTargetNamespace == null) {
              logicalTargetNamespace = "";
          }
@@ -141,6 +170,7 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
 
     public void setAttributeFormDefault(XmlSchemaForm value) {
         attributeFormDefault = value;
+        invalidateSerializedForm();
     }
 
     public XmlSchemaObjectTable getAttributeGroups() {
@@ -157,6 +187,7 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
 
     public void setBlockDefault(XmlSchemaDerivationMethod blockDefault) {
         this.blockDefault = blockDefault;
+        invalidateSerializedForm();
     }
 
     public XmlSchemaForm getElementFormDefault() {
@@ -165,6 +196,7 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
 
     public void setElementFormDefault(XmlSchemaForm elementFormDefault) {
         this.elementFormDefault = elementFormDefault;
+        invalidateSerializedForm();
     }
 
     public XmlSchemaObjectTable getElements() {
@@ -177,39 +209,16 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
 		if (schemaStack != null && schemaStack.contains(this)) {
 			// recursive schema - just return null
 			return null;
-		} else {
-			XmlSchemaElement element = (XmlSchemaElement) elements
-					.getItem(name);
-			if (deep) {
-				if (element == null) {
-					// search the imports
-					for (Iterator includedItems = includes.getIterator(); includedItems
-							.hasNext();) {
-						
-						XmlSchema schema = getSchema(includedItems.next());
-						
-						if (schema != null) {
-						// create an empty stack - push the current parent in
-						// and
-						// use the protected method to process the schema
-						if (schemaStack == null) {
-							schemaStack = new Stack();
-						}
-						schemaStack.push(this);
-						element = schema.getElementByName(name, deep,
-								schemaStack);
-						if (element != null) {
-							return element;
-						}
-						}
-					}
-				} else {
-					return element;
-				}
+		}
+		XmlSchemaElement element = (XmlSchemaElement) elements.getItem(name);
+		if (element == null && deep) {
+			// search the imports
+			XmlSchema schema = getDefiningSchema(XmlSchemaCollection.ELEMENT, name);
+			if (schema != null) {
+				element = (XmlSchemaElement) schema.elements.getItem(name);
 			}
-
-			return element;
 		}
+		return element;
 	}
 
 	/**
@@ -245,38 +254,16 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
 		if (schemaStack != null && schemaStack.contains(this)) {
 			// recursive schema - just return null
 			return null;
-		} else {
-			XmlSchemaType type = (XmlSchemaType) schemaTypes.getItem(name);
-
-			if (deep) {
-				if (type == null) {
-					// search the imports
-					for (Iterator includedItems = includes.getIterator(); includedItems
-							.hasNext();) {
-
-						XmlSchema schema = getSchema(includedItems.next());
-						
-						if (schema != null) {
-							// create an empty stack - push the current parent
-							// use the protected method to process the schema
-							if (schemaStack == null) {
-								schemaStack = new Stack();
-							}
-							schemaStack.push(this);
-							type = schema
-									.getTypeByName(name, deep, schemaStack);
-							if (type != null) {
-								return type;
-							}
-						}
-					}
-				} else {
-					return type;
-				}
+		}
+		XmlSchemaType type = (XmlSchemaType) schemaTypes.getItem(name);
+		if (type == null && deep) {
+			// search the imports
+			XmlSchema schema = getDefiningSchema(XmlSchemaCollection.TYPE, name);
+			if (schema != null) {
+				type = (XmlSchemaType) schema.schemaTypes.getItem(name);
 			}
-
-			return type;
 		}
+		return type;
 	}
 
 	/**
@@ -319,6 +306,153 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
 		return schema;
 	}
 
+	/**
+	 * Finds the schema defining a global component among this schema and the ones
+	 * reachable from it through imports and includes. When several define it, the one
+	 * the depth first walk of the imports and includes reaches first wins.
+	 * 
+	 * @param kind the kind of the component
+	 * @param name
+	 * @return the defining schema or null
+	 */
+	private XmlSchema getDefiningSchema(int kind, QName name) {
+		Reachability reachable = getReachability();
+		XmlSchema found = null;
+		int foundOrder = Integer.MAX_VALUE;
+		List schemaList = parent == null ? null : parent.getDefiningSchemas(kind, name);
+		for (int i = 0; schemaList != null && i < schemaList.size(); i++) {
+			Integer order = (Integer) reachable.order.get(schemaList.get(i));
+			if (order != null && order.intValue() < foundOrder) {
+				found = (XmlSchema) schemaList.get(i);
+				foundOrder = order.intValue();
+			}
+		}
+		// the schemas outside the collection are not indexed
+		for (int i = 0; i < reachable.unindexed.size(); i++) {
+			XmlSchema schema = (XmlSchema) reachable.unindexed.get(i);
+			int order = ((Integer) reachable.order.get(schema)).intValue();
+			if (order < foundOrder && schema.getComponentTable(kind).contains(name)) {
+				found = schema;
+				foundOrder = order;
+			}
+		}
+		return found;
+	}
+
+	private XmlSchemaObjectTable getComponentTable(int kind) {
+		switch (kind) {
+			case XmlSchemaCollection.TYPE:
+				return schemaTypes;
+			case XmlSchemaCollection.ELEMENT:
+				return elements;
+			case XmlSchemaCollection.GROUP:
+				return groups;
+			case XmlSchemaCollection.ATTRIBUTE_GROUP:
+				return attributeGroups;
+			default:
+				return attributes;
+		}
+	}
+
+	/**
+	 * Gets the schemas reachable from this one. They are walked again only when the
+	 * imports or includes of a schema of the parent collection have changed since.
+	 * 
+	 * @return
+	 */
+	private Reachability getReachability() {
+		if (reachability != null && parent != null
+				&& reachabilityVersion == parent.graphVersion) {
+			return reachability;
+		}
+		Reachability reachable = new Reachability();
+		reachable.add(this, parent);
+		if (parent != null) {
+			reachability = reachable;
+			reachabilityVersion = parent.graphVersion;
+		}
+		return reachable;
+	}
+
+	/**
+	 * The schemas reachable from a schema, numbered in the order a depth first walk of the
+	 * imports and includes reaches them
+	 */
+	private static class Reachability {
+		/** schema to Integer, by identity */
+		Map order = new IdentityHashMap();
+		/** the reachable schemas that are not in the component index */
+		List unindexed = new ArrayList();
+
+		void add(XmlSchema schema, XmlSchemaCollection collection) {
+			order.put(schema, new Integer(order.size()));
+			if (collection == null || schema.parent != collection) {
+				unindexed.add(schema);
+			}
+			for (Iterator includedItems = schema.includes.getIterator(); includedItems
+					.hasNext();) {
+				XmlSchema included = schema.getSchema(includedItems.next());
+				if (included != null && !order.containsKey(included)) {
+					add(included, collection);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Item or include collection that drops the serialized forms of the
+	 * schema on every change and, for the includes, lets the parent
+	 * collection know
+	 */
+	private class TrackingCollection extends XmlSchemaObjectCollection {
+
+		private boolean includes;
+
+		TrackingCollection(boolean includes) {
+			this.includes = includes;
+		}
+
+		public void setItem(int i, XmlSchemaObject item) {
+			super.setItem(i, item);
+			added(item);
+		}
+
+		public void add(XmlSchemaObject item) {
+			super.add(item);
+			added(item);
+		}
+
+		public void remove(XmlSchemaObject item) {
+			super.remove(item);
+			changed();
+		}
+
+		public void removeAt(int index) {
+			super.removeAt(index);
+			changed();
+		}
+
+		private void added(XmlSchemaObject item) {
+			if (item instanceof XmlSchemaExternal) {
+				((XmlSchemaExternal) item).owner = XmlSchema.this;
+			}
+			changed();
+		}
+
+		private void changed() {
+			invalidateSerializedForm();
+			if (includes) {
+				includesChanged();
+			}
+		}
+	}
+
+	void includesChanged() {
+		if (parent != null) {
+			parent.includesChanged();
+		}
+	}
+
     
 
     public XmlSchemaDerivationMethod getFinalDefault() {
@@ -327,6 +461,7 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
 
     public void setFinalDefault(XmlSchemaDerivationMethod finalDefault) {
         this.finalDefault = finalDefault;
+        invalidateSerializedForm();
     }
 
     public XmlSchemaObjectTable getGroups() {
@@ -341,10 +476,42 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
         return isCompiled;
     }
 
+    /**
+     * Gets the items of this schema. In the lazy build mode this builds the
+     * global components that have not been looked up so far.
+     */
     public XmlSchemaObjectCollection getItems() {
+        buildDeferredItems();
         return items;
     }
 
+    void addDeferredItem(SchemaBuilder.DeferredComponent component) {
+        if (deferredItems == null) {
+            deferredItems = new ArrayList();
+        }
+        deferredItems.add(component);
+    }
+
+    int getDeferredItemCount() {
+        return deferredItems == null ? 0 : deferredItems.size();
+    }
+
+    /**
+     * Builds the global components not built yet and puts them among the
+     * items, at the places they have in the schema document.
+     */
+    private void buildDeferredItems() {
+        while (deferredItems != null) {
+            List components = deferredItems;
+            deferredItems = null;
+            for (int i = 0; i < components.size(); i++) {
+                SchemaBuilder.DeferredComponent component =
+                        (SchemaBuilder.DeferredComponent) components.get(i);
+                items.setItem(component.itemIndex, component.getComponent());
+            }
+        }
+    }
+
     public XmlSchemaObjectTable getNotations() {
         return notations;
     }
@@ -359,8 +526,9 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
 
     public void setTargetNamespace(String targetNamespace) {
         if (!targetNamespace.equals("")) {
-            syntacticalTargetNamespace = logicalTargetNamespace = targetNamespace;
+            syntacticalTargetNamespace = logicalTargetNamespace = QNamePool.intern(targetNamespace);
         }
+        invalidateSerializedForm();
     }
 
     public String getVersion() {
@@ -426,6 +594,74 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
         serialize_internal(this, writer,null);
     }
 
+    /**
+     * Serialize the schema to a StAX writer. The schema element is written
+     * without an XML declaration or indentation, so the schema can be
+     * embedded in a larger document such as a WSDL.
+     * @param writer - the writer to write this
+     */
+    public void write(XMLStreamWriter writer) {
+        Map options = new HashMap();
+        options.put(OutputKeys.OMIT_XML_DECLARATION, "yes");
+        options.put(OutputKeys.INDENT, "no");
+        try {
+            XMLStreamReader reader = StAXUtils.createXMLStreamReader(
+                    new StringReader(getSerializedForm(options)));
+            try {
+                XMLStreamCopier.copy(reader, writer);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new XmlSchemaException(e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the serialized forms of this schema kept for the next write.
+     * Changes made through this schema and its item, include and component
+     * tables do this themselves; changes made inside a component (say a new
+     * particle in the sequence of a complex type) need this call before the
+     * schema is written again.
+     */
+    public void invalidateSerializedForm() {
+        synchronized (serializedForms) {
+            serializedForms.clear();
+        }
+    }
+
+    /**
+     * Makes the items, the includes and the component tables of this schema,
+     * and of the schemas it includes, imports or redefines, read only. The
+     * components themselves can still be changed.
+     */
+    public void freeze() {
+        if (items.isFrozen()) {
+            return;
+        }
+        buildDeferredItems();
+        items.freeze();
+        includes.freeze();
+        elements.freeze();
+        attributeGroups.freeze();
+        attributes.freeze();
+        groups.freeze();
+        notations.freeze();
+        schemaTypes.freeze();
+        for (int i = 0; i < includes.getCount(); i++) {
+            XmlSchemaObject external = includes.getItem(i);
+            XmlSchema schema = external instanceof XmlSchemaExternal
+                    ? ((XmlSchemaExternal) external).getSchema() : null;
+            if (schema != null) {
+                schema.freeze();
+            }
+        }
+    }
+
+    public boolean isFrozen() {
+        return items.isFrozen();
+    }
+
     public Document[] getAllSchemas() {
         try {
 
@@ -445,11 +681,34 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
      * @param options
      */
     private  void serialize_internal(XmlSchema schema, Writer out, Map options) {
+        try {
+            out.write(schema.getSerializedForm(options));
+            out.flush();
+        } catch (IOException e) {
+            throw new XmlSchemaException(e.getMessage());
+        }
+    }
 
+    /**
+     * Get the serialized form of this schema for the given options, the one
+     * kept from an earlier write if the schema has not changed since
+     * @param options
+     * @return the serialized schema
+     */
+    private String getSerializedForm(Map options) {
+        Object key = options == null ? null : new HashMap(options);
+        synchronized (serializedForms) {
+            String serializedForm = (String) serializedForms.get(key);
+            if (serializedForm != null) {
+                return serializedForm;
+            }
+        }
+
+        StringWriter out = new StringWriter();
         try {
             XmlSchemaSerializer xser = new XmlSchemaSerializer();
             xser.setExtReg(this.parent.getExtReg());
-            Document[] serializedSchemas = xser.serializeSchema(schema, false);
+            Document[] serializedSchemas = xser.serializeSchema(this, false);
             TransformerFactory trFac = TransformerFactory.newInstance();
 
             try {
@@ -464,9 +723,9 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
             javax.xml.transform.Transformer tr = trFac.newTransformer();
 
             //use the input encoding if there is one
-            if (schema.inputEncoding!= null &&
-                    !"".equals(schema.inputEncoding)){
-                tr.setOutputProperty(OutputKeys.ENCODING,schema.inputEncoding);
+            if (this.inputEncoding!= null &&
+                    !"".equals(this.inputEncoding)){
+                tr.setOutputProperty(OutputKeys.ENCODING,this.inputEncoding);
             }
 
             //let these be configured from outside  if any is present
@@ -479,21 +738,24 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
             }
             Iterator keys = options.keySet().iterator();
             while (keys.hasNext()) {
-                Object key = keys.next();
-                tr.setOutputProperty((String)key, (String)options.get(key));
+                Object optionKey = keys.next();
+                tr.setOutputProperty((String)optionKey, (String)options.get(optionKey));
             }
 
             tr.transform(source, result);
-            out.flush();
         } catch (TransformerConfigurationException e) {
             throw new XmlSchemaException(e.getMessage());
         } catch (TransformerException e) {
             throw new XmlSchemaException(e.getMessage());
         } catch (XmlSchemaSerializer.XmlSchemaSerializerException e) {
             throw new XmlSchemaException(e.getMessage());
-        } catch (IOException e) {
-            throw new XmlSchemaException(e.getMessage());
         }
+
+        String serializedForm = out.toString();
+        synchronized (serializedForms) {
+            serializedForms.put(key, serializedForm);
+        }
+        return serializedForm;
     }
 
     /**
@@ -525,6 +787,7 @@ public class XmlSchema extends XmlSchemaAnnotated implements NamespaceContextOwn
      */
     public void setNamespaceContext(NamespacePrefixList namespaceContext) {
         this.namespaceContext = namespaceContext;
+        invalidateSerializedForm();
     }
 
     /**
@@ -19,11 +19,14 @@
 
 package org.apache.ws.commons.schema;
 
+import org.apache.axiom.om.util.StAXUtils;
 import org.apache.ws.commons.schema.constants.Constants;
 import org.apache.ws.commons.schema.extensions.ExtensionRegistry;
 import org.apache.ws.commons.schema.resolver.DefaultURIResolver;
 import org.apache.ws.commons.schema.resolver.URIResolver;
 import org.apache.ws.commons.schema.utils.NamespacePrefixList;
+import org.apache.ws.commons.schema.utils.SchemaDocumentCache;
+import org.apache.ws.commons.schema.utils.StAXDOMBuilder;
 import org.apache.ws.commons.schema.utils.TargetNamespaceValidator;
 import org.apache.ws.commons.schema.utils.DOMUtil;
 import org.w3c.dom.Document;
@@ -36,12 +39,19 @@ import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Source;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.sax.SAXSource;
 import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.*;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedExceptionAction;
@@ -123,6 +133,30 @@ public final class XmlSchemaCollection {
      */
     private Map schemas = new HashMap();
 
+    /**
+     * Kinds of the global components kept in the component index
+     */
+    static final int TYPE = 0;
+    static final int ELEMENT = 1;
+    static final int GROUP = 2;
+    static final int ATTRIBUTE_GROUP = 3;
+    static final int ATTRIBUTE = 4;
+
+    /**
+     * Index of the global components of the schemas of this collection, one map per
+     * component kind. Each map goes from the QName of a component to the List of the
+     * schemas defining it; there is more than one only for broken or redefined schemas.
+     * The schemas register their components as they are added to them.
+     */
+    private Map[] componentIndex = new Map[]{
+            new HashMap(), new HashMap(), new HashMap(), new HashMap(), new HashMap()};
+
+    /**
+     * Changes whenever the imports or includes of a schema of this collection change, so
+     * the schemas know when the reachable schemas they keep are out of date.
+     */
+    int graphVersion;
+
 
     /**
      * base URI is used as the base for loading the
@@ -140,6 +174,44 @@ public final class XmlSchemaCollection {
      */
     URIResolver schemaResolver = new DefaultURIResolver();
 
+    /**
+     * An optional on disk cache of the parsed schema documents
+     */
+    private SchemaDocumentCache documentCache;
+
+    /**
+     * The number of threads parsing the imported and included documents
+     * ahead of the build, 1 for none
+     */
+    private int prefetchThreadCount = 1;
+    private SchemaPrefetcher prefetcher;
+
+    /**
+     * Whether the documents are read with a StAX parser instead of a DOM parser
+     */
+    private boolean useStAXParser;
+
+    /**
+     * Whether the schemas keep referring to the documents they were read from
+     */
+    private boolean retainDocuments;
+
+    /**
+     * Whether the schemas are frozen once read
+     */
+    private boolean freezeSchemas;
+
+    /**
+     * Whether the global components are built when first looked up
+     */
+    private boolean lazyBuild;
+
+    /**
+     * The input encodings of the documents built from StAX streams, which
+     * the documents do not know themselves
+     */
+    private Map inputEncodings = new WeakHashMap();
+
     XmlSchema xsd = new XmlSchema(XmlSchema.SCHEMA_NS, this);
 
     /**
@@ -164,6 +236,133 @@ public final class XmlSchemaCollection {
         this.schemaResolver = schemaResolver;
     }
 
+    /**
+     * Set the cache of parsed schema documents. The documents read through
+     * a system ID or a byte stream are taken from the cache when their
+     * content has not changed since they were cached.
+     * @param documentCache the cache, or null for none
+     */
+    public void setDocumentCache(SchemaDocumentCache documentCache) {
+        this.documentCache = documentCache;
+    }
+
+    public SchemaDocumentCache getDocumentCache() {
+        return documentCache;
+    }
+
+    /**
+     * Set the number of threads parsing the documents a schema imports or
+     * includes. With more than one, all the documents reachable from a
+     * schema are parsed concurrently before the schema is built; the build
+     * itself still runs on the calling thread, in the usual order.
+     * @param prefetchThreadCount the number of threads, 1 to parse the
+     * documents one by one as the build reaches them
+     */
+    public void setPrefetchThreadCount(int prefetchThreadCount) {
+        if (prefetchThreadCount < 1) {
+            throw new IllegalArgumentException("prefetchThreadCount " + prefetchThreadCount);
+        }
+        this.prefetchThreadCount = prefetchThreadCount;
+    }
+
+    public int getPrefetchThreadCount() {
+        return prefetchThreadCount;
+    }
+
+    /**
+     * Parses the documents referred to from a schema ahead of its build,
+     * unless prefetching is off or this is the build of an imported one.
+     * @param schemaEl
+     * @param uri
+     */
+    private void prefetch(Element schemaEl, String uri) {
+        if (prefetchThreadCount > 1 && stack.isEmpty() && schemaEl != null) {
+            if (prefetcher == null) {
+                prefetcher = new SchemaPrefetcher(this, prefetchThreadCount);
+            }
+            prefetcher.prefetch(schemaEl, uri);
+        }
+    }
+
+    /**
+     * Set whether the schema documents are read with the StAX parser of
+     * StAXUtils rather than a DOM parser. The document is built from the
+     * stream only for the time the schema is built.
+     * @param useStAXParser
+     */
+    public void setUseStAXParser(boolean useStAXParser) {
+        this.useStAXParser = useStAXParser;
+    }
+
+    public boolean isUseStAXParser() {
+        return useStAXParser;
+    }
+
+    /**
+     * Set whether the built schemas keep referring to the DOM they were read
+     * from. By default the markup of the annotations, the unhandled
+     * attributes and the extensions are copied out of the document, and the
+     * namespace context of a schema is read up front, so the document can be
+     * dropped once the schema is built. Callers that need the markup in its
+     * original document, with its parent and sibling nodes, turn this on.
+     * @param retainDocuments
+     */
+    public void setRetainDocuments(boolean retainDocuments) {
+        this.retainDocuments = retainDocuments;
+    }
+
+    public boolean isRetainDocuments() {
+        return retainDocuments;
+    }
+
+    /**
+     * Set whether the schemas are frozen once read, see XmlSchema.freeze.
+     * The items, includes and component tables of a frozen schema can be
+     * read from several threads but no longer changed, so this is for
+     * callers that use the schemas as read.
+     * @param freezeSchemas
+     */
+    public void setFreezeSchemas(boolean freezeSchemas) {
+        this.freezeSchemas = freezeSchemas;
+    }
+
+    public boolean isFreezeSchemas() {
+        return freezeSchemas;
+    }
+
+    /**
+     * Set whether the named global types, elements, groups, attribute groups
+     * and attributes of the schemas read from now on are built only when
+     * they are first looked up, by name or through getItems or the values
+     * of their table. The schema documents are read in full, but a caller
+     * that only needs a few components and what they refer to does not pay
+     * for building the rest. Until a schema is built in full it holds on to
+     * the elements of its document the remaining components are built from,
+     * and the lookups change the schema, so it must not be shared between
+     * threads until then.
+     * @param lazyBuild
+     */
+    public void setLazyBuild(boolean lazyBuild) {
+        this.lazyBuild = lazyBuild;
+    }
+
+    public boolean isLazyBuild() {
+        return lazyBuild;
+    }
+
+    /**
+     * Freezes a schema just read, if asked to, unless this is the build of
+     * an imported one; the importing schema freezes it when it is done.
+     * @param schema
+     * @return the schema
+     */
+    private XmlSchema finishRead(XmlSchema schema) {
+        if (freezeSchemas && stack.isEmpty() && schema != null) {
+            schema.freeze();
+        }
+        return schema;
+    }
+
     /**
      * This section should comply to the XMLSchema specification; see
      * <a href="http://www.w3.org/TR/2004/PER-xmlschema-2-20040318/datatypes.html#built-in-datatypes">
@@ -292,6 +491,34 @@ public final class XmlSchemaCollection {
                 System.err.println("The specified extension registry class cannot be accessed!");
             }
         }
+
+        // a schema document cache can be turned on the same way
+        if (System.getProperty(Constants.SystemConstants.SCHEMA_CACHE_DIRECTORY_KEY) != null) {
+            this.documentCache = new SchemaDocumentCache(new File(
+                    System.getProperty(Constants.SystemConstants.SCHEMA_CACHE_DIRECTORY_KEY)));
+        }
+
+        if (Boolean.getBoolean(Constants.SystemConstants.USE_STAX_PARSER_KEY)) {
+            this.useStAXParser = true;
+        }
+
+        if (Boolean.getBoolean(Constants.SystemConstants.FREEZE_SCHEMAS_KEY)) {
+            this.freezeSchemas = true;
+        }
+
+        if (Boolean.getBoolean(Constants.SystemConstants.LAZY_BUILD_KEY)) {
+            this.lazyBuild = true;
+        }
+
+        // as well as prefetching
+        if (System.getProperty(Constants.SystemConstants.PREFETCH_THREADS_KEY) != null) {
+            try {
+                setPrefetchThreadCount(Integer.parseInt(
+                        System.getProperty(Constants.SystemConstants.PREFETCH_THREADS_KEY)));
+            } catch (IllegalArgumentException e) {
+                System.err.println("The specified number of prefetch threads is not valid!");
+            }
+        }
     }
 
     boolean containsSchema(SchemaKey pKey) {
@@ -343,8 +570,18 @@ public final class XmlSchemaCollection {
             docFac.setNamespaceAware(true);
             final DocumentBuilder builder = docFac.newDocumentBuilder();
             Document doc = null;
-            doc = parse_doPriv(inputSource, builder, doc);
-            return read(doc, inputSource.getSystemId(), veh, namespaceValidator);
+            if (prefetcher != null) {
+                doc = prefetcher.take(inputSource.getSystemId());
+            }
+            if (doc == null) {
+                doc = parse_doPriv(inputSource, builder, doc);
+            }
+            XmlSchema schema = read(doc, inputSource.getSystemId(), veh, namespaceValidator);
+            String inputEncoding = getInputEncoding(doc);
+            if (inputEncoding != null) {
+                schema.setInputEncoding(inputEncoding);
+            }
+            return schema;
         } catch (ParserConfigurationException e) {
             throw new XmlSchemaException(e.getMessage());
         } catch (IOException e) {
@@ -359,7 +596,7 @@ public final class XmlSchemaCollection {
             doc = (Document) java.security.AccessController.doPrivileged(
                     new PrivilegedExceptionAction() {
                         public Object run() throws IOException, SAXException {
-                            return builder.parse(inputSource);
+                            return parse(inputSource, builder);
                         }
                     }
             );
@@ -375,10 +612,128 @@ public final class XmlSchemaCollection {
         return doc;
     }
 
+    /**
+     * Parse a schema document, through the document cache if there is one
+     * @param inputSource
+     * @param builder
+     * @return the document
+     */
+    Document parse(InputSource inputSource, DocumentBuilder builder)
+            throws IOException, SAXException {
+        if (documentCache != null) {
+            return documentCache.parse(inputSource, builder);
+        }
+        if (useStAXParser) {
+            return parseStAX(inputSource, builder);
+        }
+        return builder.parse(inputSource);
+    }
+
+    private Document parseStAX(InputSource inputSource, DocumentBuilder builder)
+            throws IOException, SAXException {
+        InputStream in = null;
+        XMLStreamReader reader = null;
+        try {
+            if (inputSource.getCharacterStream() != null) {
+                reader = StAXUtils.createXMLStreamReader(inputSource.getCharacterStream());
+            } else {
+                in = inputSource.getByteStream();
+                if (in == null) {
+                    in = openSystemId(inputSource.getSystemId());
+                }
+                reader = inputSource.getEncoding() != null
+                        ? StAXUtils.createXMLStreamReader(in, inputSource.getEncoding())
+                        : StAXUtils.createXMLStreamReader(in);
+            }
+            return build(reader, builder);
+        } catch (XMLStreamException e) {
+            throw new SAXException(e);
+        } finally {
+            try {
+                if (reader != null) {
+                    reader.close();
+                }
+            } catch (XMLStreamException e) {
+                // nothing more to read anyway
+            }
+            if (in != null && inputSource.getByteStream() == null) {
+                in.close();
+            }
+        }
+    }
+
+    private InputStream openSystemId(String systemId) throws IOException {
+        if (systemId == null) {
+            throw new IOException("The input source has neither a stream nor a system ID");
+        }
+        try {
+            return new URL(systemId).openStream();
+        } catch (MalformedURLException e) {
+            return new FileInputStream(systemId);
+        }
+    }
+
+    private Document build(XMLStreamReader reader, DocumentBuilder builder)
+            throws XMLStreamException {
+        Document doc = StAXDOMBuilder.build(reader, builder.newDocument());
+        String encoding = reader.getEncoding() != null ? reader.getEncoding()
+                : reader.getCharacterEncodingScheme();
+        if (encoding != null) {
+            synchronized (inputEncodings) {
+                inputEncodings.put(doc, encoding);
+            }
+        }
+        return doc;
+    }
+
+    /**
+     * Get the input encoding of a document this collection has built itself
+     * or taken from the document cache
+     * @param doc
+     * @return the encoding, or null if the document knows it itself
+     */
+    private String getInputEncoding(Document doc) {
+        synchronized (inputEncodings) {
+            if (inputEncodings.containsKey(doc)) {
+                return (String) inputEncodings.get(doc);
+            }
+        }
+        if (documentCache != null) {
+            return documentCache.getInputEncoding(doc);
+        }
+        return null;
+    }
+
     public XmlSchema read(InputSource inputSource, ValidationEventHandler veh) {
         return read(inputSource, veh, null);
     }
 
+    /**
+     * Read a schema from a StAX stream, positioned at the start of the
+     * document or at the schema element.
+     * @param reader
+     * @param uri the URI of the schema, the base of its imports and includes
+     * @param veh
+     * @return the schema
+     */
+    public XmlSchema read(XMLStreamReader reader, String uri, ValidationEventHandler veh) {
+        try {
+            DocumentBuilderFactory docFac = DocumentBuilderFactory.newInstance();
+            docFac.setNamespaceAware(true);
+            Document doc = build(reader, docFac.newDocumentBuilder());
+            XmlSchema schema = read(doc, uri, veh);
+            String inputEncoding = getInputEncoding(doc);
+            if (inputEncoding != null) {
+                schema.setInputEncoding(inputEncoding);
+            }
+            return schema;
+        } catch (ParserConfigurationException e) {
+            throw new XmlSchemaException(e.getMessage());
+        } catch (XMLStreamException e) {
+            throw new XmlSchemaException(e.getMessage());
+        }
+    }
+
     public XmlSchema read(Source source, ValidationEventHandler veh) {
         if (source instanceof SAXSource) {
             return read(((SAXSource) source).getInputSource(), veh);
@@ -402,16 +757,18 @@ public final class XmlSchemaCollection {
     }
 
     public XmlSchema read(Document doc, ValidationEventHandler veh) {
+        prefetch(doc.getDocumentElement(), null);
         SchemaBuilder builder = new SchemaBuilder(this, null);
-        return builder.build(doc, null, veh);
+        return finishRead(builder.build(doc, null, veh));
     }
 
    
     public XmlSchema read(Element elem) {
+        prefetch(elem, null);
         SchemaBuilder builder = new SchemaBuilder(this, null);
         XmlSchema xmlSchema = builder.handleXmlSchemaElement(elem, null);
         xmlSchema.setInputEncoding(DOMUtil.getXmlEncoding(elem.getOwnerDocument()));
-        return xmlSchema;
+        return finishRead(xmlSchema);
     }
 
     public XmlSchema read(Document doc, String uri, ValidationEventHandler veh) {
@@ -420,17 +777,19 @@ public final class XmlSchemaCollection {
 
     public XmlSchema read(Document doc, String uri, ValidationEventHandler veh,
             TargetNamespaceValidator validator) {
+        prefetch(doc.getDocumentElement(), uri);
         SchemaBuilder builder = new SchemaBuilder(this, validator);
         XmlSchema schema = builder.build(doc, uri, veh);
         schema.setInputEncoding(DOMUtil.getInputEncoding(doc));
-		return schema;
+		return finishRead(schema);
     }
 
     public XmlSchema read(Element elem, String uri) {
+        prefetch(elem, uri);
         SchemaBuilder builder = new SchemaBuilder(this, null);
         XmlSchema xmlSchema = builder.handleXmlSchemaElement(elem, uri);
         xmlSchema.setInputEncoding(DOMUtil.getInputEncoding(elem.getOwnerDocument()));
-        return xmlSchema;
+        return finishRead(xmlSchema);
     }
 
     /**
@@ -473,7 +832,54 @@ public final class XmlSchemaCollection {
         return (XmlSchema[]) c.toArray(new XmlSchema[c.size()]);
     }
 
+    /**
+     * Records that a schema of this collection defines a global component.
+     *
+     * @param kind   the kind of the component
+     * @param name   the QName of the component
+     * @param schema the defining schema
+     */
+    void registerComponent(int kind, QName name, XmlSchema schema) {
+        List schemaList = (List) componentIndex[kind].get(name);
+        if (schemaList == null) {
+            schemaList = new ArrayList(1);
+            componentIndex[kind].put(name, schemaList);
+        } else {
+            for (int i = 0; i < schemaList.size(); i++) {
+                if (schemaList.get(i) == schema) {
+                    return;
+                }
+            }
+        }
+        schemaList.add(schema);
+    }
+
+    /**
+     * Gets the schemas of this collection defining a global component.
+     *
+     * @param kind the kind of the component
+     * @param name the QName of the component
+     * @return the List of the defining schemas, in the order they were registered, or
+     *         null if there are none
+     */
+    List getDefiningSchemas(int kind, QName name) {
+        return (List) componentIndex[kind].get(name);
+    }
+
+    void includesChanged() {
+        graphVersion++;
+    }
+
     public XmlSchemaElement getElementByQName(QName qname) {
+        List schemaList = getDefiningSchemas(ELEMENT, qname);
+        if (schemaList != null) {
+            return ((XmlSchema) schemaList.get(0)).getElementByName(qname, false, null);
+        }
+        if (knownNamespaceMap.isEmpty()) {
+            // only schemas of other collections, imported through the known namespace map,
+            // can define the element without it being in the index
+            return null;
+        }
         String uri = qname.getNamespaceURI();
         for (Iterator iter = schemas.entrySet().iterator();  iter.hasNext();  ) {
             Map.Entry entry = (Map.Entry) iter.next();
@@ -488,6 +894,13 @@ public final class XmlSchemaCollection {
     }
 
     public XmlSchemaType getTypeByQName(QName schemaTypeName) {
+        List schemaList = getDefiningSchemas(TYPE, schemaTypeName);
+        if (schemaList != null) {
+            return ((XmlSchema) schemaList.get(0)).getTypeByName(schemaTypeName, false, null);
+        }
+        if (knownNamespaceMap.isEmpty()) {
+            return null;
+        }
         String uri = schemaTypeName.getNamespaceURI();
         for (Iterator iter = schemas.entrySet().iterator();  iter.hasNext();  ) {
             Map.Entry entry = (Map.Entry) iter.next();
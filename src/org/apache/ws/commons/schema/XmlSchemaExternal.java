@@ -33,12 +33,21 @@ public abstract class XmlSchemaExternal extends XmlSchemaAnnotated {
 
     XmlSchema schema;
 
+    /**
+     * The schema importing or including the external one, if it is known
+     */
+    XmlSchema owner;
+
     public XmlSchema getSchema() {
         return schema;
     }
 
     public void setSchema(XmlSchema schema) {
         this.schema = schema;
+        if (schema != null) {
+            // the schemas importing this one have to look again at what they reach
+            schema.includesChanged();
+        }
     }
 
     String schemaLocation;
@@ -49,6 +58,9 @@ public abstract class XmlSchemaExternal extends XmlSchemaAnnotated {
 
     public void setSchemaLocation(String schemaLocation) {
         this.schemaLocation = schemaLocation;
+        if (owner != null) {
+            owner.invalidateSerializedForm();
+        }
     }
 }
 
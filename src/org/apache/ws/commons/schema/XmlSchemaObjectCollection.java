@@ -20,57 +20,163 @@
 package org.apache.ws.commons.schema;
 
 import java.util.Iterator;
-import java.util.Vector;
+import java.util.NoSuchElementException;
 
 /**
  * An object collection class to handle XmlSchemaObjects when collections
  * are returned from method calls.
+ * <p/>
+ * The items are kept in an array and the collection is not synchronized; a schema is built
+ * and changed on one thread. Once a collection is frozen it can no longer be changed, and
+ * can be read from any number of threads.
  */
 public class XmlSchemaObjectCollection {
 
-    Vector objects;
+    private static final XmlSchemaObject[] EMPTY = new XmlSchemaObject[0];
+
+    private XmlSchemaObject[] objects = EMPTY;
+    private int count;
+    private boolean frozen;
 
     /**
      * Creates new XmlSchemaObjectCollection
      */
     public XmlSchemaObjectCollection() {
-        objects = new Vector();
     }
 
     public int getCount() {
-        return objects.size();
+        return count;
     }
 
     public XmlSchemaObject getItem(int i) {
-        return (XmlSchemaObject) objects.elementAt(i);
+        if (i >= count) {
+            throw new ArrayIndexOutOfBoundsException(i + " >= " + count);
+        }
+        return objects[i];
     }
 
+    /**
+     * Inserts an item at the given index, moving the items from that index on up.
+     */
     public void setItem(int i, XmlSchemaObject item) {
-        objects.insertElementAt(item, i);
+        checkNotFrozen();
+        if (i > count) {
+            throw new ArrayIndexOutOfBoundsException(i + " > " + count);
+        }
+        ensureCapacity(count + 1);
+        System.arraycopy(objects, i, objects, i + 1, count - i);
+        objects[i] = item;
+        count++;
     }
 
     public void add(XmlSchemaObject item) {
-        objects.addElement(item);
+        checkNotFrozen();
+        ensureCapacity(count + 1);
+        objects[count++] = item;
     }
 
     public boolean contains(XmlSchemaObject item) {
-        return objects.contains(item);
+        return indexOf(item) >= 0;
     }
 
     public int indexOf(XmlSchemaObject item) {
-        return objects.indexOf(item);
+        for (int i = 0; i < count; i++) {
+            if (item == null ? objects[i] == null : item.equals(objects[i])) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     public void remove(XmlSchemaObject item) {
-        objects.remove(item);
+        int index = indexOf(item);
+        if (index >= 0) {
+            removeAt(index);
+        }
     }
 
     public void removeAt(int index) {
-        objects.removeElementAt(index);
+        checkNotFrozen();
+        if (index >= count) {
+            throw new ArrayIndexOutOfBoundsException(index + " >= " + count);
+        }
+        System.arraycopy(objects, index + 1, objects, index, count - index - 1);
+        objects[--count] = null;
     }
 
     public Iterator getIterator() {
-        return objects.iterator();
+        return new ItemIterator();
+    }
+
+    /**
+     * Gets the items of this collection.
+     *
+     * @return a new array holding the items
+     */
+    public XmlSchemaObject[] toArray() {
+        XmlSchemaObject[] array = new XmlSchemaObject[count];
+        System.arraycopy(objects, 0, array, 0, count);
+        return array;
+    }
+
+    /**
+     * Makes this collection read only. Changing it afterwards throws an
+     * UnsupportedOperationException.
+     */
+    public void freeze() {
+        if (objects.length > count) {
+            XmlSchemaObject[] trimmed = new XmlSchemaObject[count];
+            System.arraycopy(objects, 0, trimmed, 0, count);
+            objects = trimmed;
+        }
+        frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("The collection is frozen");
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > objects.length) {
+            XmlSchemaObject[] grown =
+                    new XmlSchemaObject[Math.max(capacity, objects.length * 2 + 4)];
+            System.arraycopy(objects, 0, grown, 0, count);
+            objects = grown;
+        }
+    }
+
+    /** Walks the items; removing the current item goes through removeAt */
+    private class ItemIterator implements Iterator {
+
+        private int next;
+        private int current = -1;
+
+        public boolean hasNext() {
+            return next < count;
+        }
+
+        public Object next() {
+            if (next >= count) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            return objects[current];
+        }
+
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            removeAt(current);
+            next = current;
+            current = -1;
+        }
     }
 
     public String toString(String prefix, int tab) {
@@ -20,8 +20,12 @@
 package org.apache.ws.commons.schema;
 
 import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A collection class that provides read-only helpers for XmlSchemaObject
@@ -29,12 +33,38 @@ import java.util.Iterator;
  * elements that are within the schema as collections that are accessed
  * from the XmlSchema class (for example, Attributes, AttributeGroups,
  * Elements, and so on).
+ * <p/>
+ * Besides the iterators, the names and values can be read by index, in the order the
+ * iterators return them. Once a table is frozen it can no longer be changed.
+ * <p/>
+ * In the lazy build mode a table also lists the components that have not been
+ * built yet. Looking one up by name builds it; going through all the values
+ * builds them all.
  */
 
 public class XmlSchemaObjectTable {
 
+    /** The kind of the components of a table that are not in the component index */
+    static final int NOT_INDEXED = -1;
+
+    /** the components by name; changes have to go through add */
     HashMap collection;
 
+    /** the entries of the map, in its iteration order, built when first read by index */
+    private Map.Entry[] entries;
+    private boolean frozen;
+
+    /** the components not built yet, by name, or null if there are none */
+    private Map deferred;
+
+    /**
+     * The schema whose global components of the given kind this table holds, or null. The
+     * components added to such a table are registered in the component index of the
+     * collection of the schema, and the serialized forms of the schema are dropped.
+     */
+    private XmlSchema owner;
+    private int kind;
+
     /**
      * Creates new XmlSchemaObjectTable
      */
@@ -42,27 +72,141 @@ public class XmlSchemaObjectTable {
         this.collection = new HashMap();
     }
 
+    /**
+     * Creates a table of the global components of a schema.
+     *
+     * @param owner the schema
+     * @param kind  the kind of the components, one of the XmlSchemaCollection component kinds
+     *              or NOT_INDEXED
+     */
+    XmlSchemaObjectTable(XmlSchema owner, int kind) {
+        this();
+        this.owner = owner;
+        this.kind = kind;
+    }
+
     public int getCount() {
-        return this.collection.size();
+        return this.collection.size() + (deferred == null ? 0 : deferred.size());
     }
 
     public XmlSchemaObject getItem(QName name) {
-        return (XmlSchemaObject) collection.get(name);
+        XmlSchemaObject item = (XmlSchemaObject) collection.get(name);
+        if (item == null && deferred != null) {
+            SchemaBuilder.DeferredComponent component =
+                    (SchemaBuilder.DeferredComponent) deferred.remove(name);
+            if (component != null) {
+                if (deferred.isEmpty()) {
+                    deferred = null;
+                }
+                component.build();
+                item = (XmlSchemaObject) collection.get(name);
+            }
+        }
+        return item;
     }
 
     public Iterator getNames() {
+        if (deferred != null) {
+            // the names are known without building the components
+            List names = new ArrayList(collection.keySet());
+            names.addAll(deferred.keySet());
+            return Collections.unmodifiableList(names).iterator();
+        }
+        if (frozen) {
+            return Collections.unmodifiableSet(collection.keySet()).iterator();
+        }
         return collection.keySet().iterator();
     }
 
     public Iterator getValues() {
+        buildDeferred();
+        if (frozen) {
+            return Collections.unmodifiableCollection(collection.values()).iterator();
+        }
         return collection.values().iterator();
     }
 
+    /**
+     * Gets the name of the component at an index, in the order getNames returns them.
+     */
+    public QName getName(int i) {
+        return (QName) getEntries()[i].getKey();
+    }
+
+    /**
+     * Gets the component at an index, in the order getValues returns them.
+     */
+    public XmlSchemaObject getValue(int i) {
+        return (XmlSchemaObject) getEntries()[i].getValue();
+    }
+
     public boolean contains(QName name) {
-        return collection.containsKey(name);
+        return collection.containsKey(name) || deferred != null && deferred.containsKey(name);
     }
 
     public void add(QName name, XmlSchemaObject value) {
+        if (frozen) {
+            throw new UnsupportedOperationException("The table is frozen");
+        }
         collection.put(name, value);
+        entries = null;
+        if (owner != null) {
+            owner.invalidateSerializedForm();
+            if (owner.parent != null && kind != NOT_INDEXED) {
+                owner.parent.registerComponent(kind, name, owner);
+            }
+        }
+    }
+
+    /**
+     * Lists a component that is built when it is first looked up.
+     *
+     * @param name
+     * @param component
+     */
+    void addDeferred(QName name, SchemaBuilder.DeferredComponent component) {
+        if (frozen) {
+            throw new UnsupportedOperationException("The table is frozen");
+        }
+        if (deferred == null) {
+            deferred = new HashMap();
+        }
+        deferred.put(name, component);
+        entries = null;
+        if (owner != null && owner.parent != null && kind != NOT_INDEXED) {
+            owner.parent.registerComponent(kind, name, owner);
+        }
+    }
+
+    /**
+     * Builds the components not built yet.
+     */
+    void buildDeferred() {
+        while (deferred != null) {
+            getItem((QName) deferred.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Makes this table read only. Adding to it afterwards throws an
+     * UnsupportedOperationException.
+     */
+    public void freeze() {
+        getEntries();
+        frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private Map.Entry[] getEntries() {
+        buildDeferred();
+        Map.Entry[] entries = this.entries;
+        if (entries == null) {
+            entries = (Map.Entry[]) collection.entrySet().toArray(new Map.Entry[collection.size()]);
+            this.entries = entries;
+        }
+        return entries;
     }
 }
@@ -133,6 +133,11 @@ public class Constants {
      */
     public static class SystemConstants{
         public static final String EXTENSION_REGISTRY_KEY = "org.apache.ws.commons.extensions.ExtensionRegistry";
+        public static final String SCHEMA_CACHE_DIRECTORY_KEY = "org.apache.ws.commons.schema.cacheDirectory";
+        public static final String PREFETCH_THREADS_KEY = "org.apache.ws.commons.schema.prefetchThreads";
+        public static final String USE_STAX_PARSER_KEY = "org.apache.ws.commons.schema.useStAXParser";
+        public static final String FREEZE_SCHEMAS_KEY = "org.apache.ws.commons.schema.freezeSchemas";
+        public static final String LAZY_BUILD_KEY = "org.apache.ws.commons.schema.lazyBuild";
     }
 
     public static final String XMLNS_ATTRIBUTE_NS_URI =
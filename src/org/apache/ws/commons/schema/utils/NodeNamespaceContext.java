@@ -58,6 +58,15 @@ public class NodeNamespaceContext implements NamespacePrefixList {
         return declarations;
     }
 
+    /**
+     * Reads the namespace declarations in scope of the node, so the context
+     * no longer refers to the node and its document.
+     */
+    public void detach() {
+        getDeclarations();
+        node = null;
+    }
+
     public String getNamespaceURI(String pPrefix) {
         if (pPrefix == null) {
             throw new IllegalArgumentException("The prefix must not be null.");
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ws.commons.schema.utils;
+
+import javax.xml.namespace.QName;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A pool of canonical QNames and namespace and name strings. The schema and WSDL models hold
+ * the same few namespaces and names many times over; taking them from the pool keeps one
+ * instance of each, and the equals of String and QName then usually returns on the identity
+ * check.
+ * <p/>
+ * The pool only refers to its entries weakly, so the names of models that are gone are
+ * dropped with them. It can be used from several threads.
+ */
+public class QNamePool {
+
+    /** string to a WeakReference to its canonical instance */
+    private static final Map strings = new WeakHashMap();
+
+    /** QName to a WeakReference to its canonical instance */
+    private static final Map qNames = new WeakHashMap();
+
+    private QNamePool() {
+    }
+
+    /**
+     * Gets the canonical instance of a string.
+     *
+     * @param value
+     * @return the canonical instance, or null if the value is null
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        synchronized (strings) {
+            WeakReference ref = (WeakReference) strings.get(value);
+            String canonical = ref == null ? null : (String) ref.get();
+            if (canonical == null) {
+                canonical = value;
+                strings.put(canonical, new WeakReference(canonical));
+            }
+            return canonical;
+        }
+    }
+
+    /**
+     * Gets the canonical instance of a QName. The prefix is kept: a QName with another
+     * prefix than the canonical one is made from the canonical strings instead.
+     *
+     * @param qName
+     * @return the canonical instance, or null if the QName is null
+     */
+    public static QName intern(QName qName) {
+        if (qName == null) {
+            return null;
+        }
+        synchronized (qNames) {
+            WeakReference ref = (WeakReference) qNames.get(qName);
+            QName canonical = ref == null ? null : (QName) ref.get();
+            if (canonical == null) {
+                canonical = new QName(intern(qName.getNamespaceURI()),
+                                      intern(qName.getLocalPart()),
+                                      intern(qName.getPrefix()));
+                qNames.put(canonical, new WeakReference(canonical));
+                return canonical;
+            }
+            if (canonical.getPrefix().equals(qName.getPrefix())) {
+                return canonical;
+            }
+            return new QName(canonical.getNamespaceURI(), canonical.getLocalPart(),
+                             intern(qName.getPrefix()));
+        }
+    }
+
+    /**
+     * Gets the canonical QName with the given namespace and local part, and no prefix.
+     *
+     * @param namespaceURI
+     * @param localPart
+     * @return the canonical QName
+     */
+    public static QName getQName(String namespaceURI, String localPart) {
+        return intern(new QName(namespaceURI, localPart));
+    }
+
+    /**
+     * Gets the canonical QName with the given namespace, local part and prefix.
+     *
+     * @param namespaceURI
+     * @param localPart
+     * @param prefix
+     * @return the canonical QName
+     */
+    public static QName getQName(String namespaceURI, String localPart, String prefix) {
+        return intern(new QName(namespaceURI, localPart, prefix));
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ws.commons.schema.utils;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An on disk cache of parsed schema documents. The documents are kept in a compact binary
+ * form, keyed by the system ID of the document and a digest of its content, so a changed
+ * document is parsed again. Reading a document back from the cache skips the XML parser.
+ * <p/>
+ * Documents read from a character stream are not cached, since their bytes are unknown.
+ * The cache is only an aid: a document that cannot be written to it, e.g. because the
+ * directory is read only or full, is still returned.
+ */
+public class SchemaDocumentCache {
+
+    private static final int MAGIC = 0x58534443; // XSDC
+    private static final int VERSION = 1;
+
+    private static final byte END = 0;
+    private static final byte ELEMENT = 1;
+    private static final byte TEXT = 2;
+    private static final byte CDATA = 3;
+    private static final byte COMMENT = 4;
+    private static final byte PROCESSING_INSTRUCTION = 5;
+
+    private static final int NULL_STRING = -1;
+    private static final int NEW_STRING = -2;
+
+    private static final String UTF_8 = "UTF-8";
+    private static final String SUFFIX = ".dom";
+
+    private File directory;
+
+    /**
+     * the input encodings of the documents handed out, which a document built from the
+     * cache does not know itself
+     */
+    private Map inputEncodings = new WeakHashMap();
+
+    /** whether a failed write has been reported, so that it is reported only once */
+    private boolean writeFailureReported = false;
+
+    /**
+     * Creates a cache keeping its entries in the given directory. The directory is created
+     * if it does not exist.
+     *
+     * @param directory
+     */
+    public SchemaDocumentCache(File directory) {
+        this.directory = directory;
+        directory.mkdirs();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Parses a schema document, or reads it from the cache if it has been parsed before.
+     *
+     * @param inputSource the source of the document
+     * @param builder     the builder used to parse the document and create the cached one
+     * @return the document
+     * @throws IOException
+     * @throws SAXException
+     */
+    public Document parse(InputSource inputSource, DocumentBuilder builder)
+            throws IOException, SAXException {
+        byte[] content = readContent(inputSource);
+        if (content == null) {
+            return builder.parse(inputSource);
+        }
+
+        File entry = new File(directory, getKey(inputSource.getSystemId(), content) + SUFFIX);
+        if (entry.exists()) {
+            try {
+                return read(entry, builder);
+            } catch (IOException e) {
+                // a broken or foreign entry - parse the document again and replace it
+            } catch (RuntimeException e) {
+                // likewise, the entry does not hold a well formed document
+            }
+        }
+
+        InputSource contentSource = new InputSource(new ByteArrayInputStream(content));
+        contentSource.setSystemId(inputSource.getSystemId());
+        contentSource.setPublicId(inputSource.getPublicId());
+        contentSource.setEncoding(inputSource.getEncoding());
+        Document doc = builder.parse(contentSource);
+        try {
+            write(doc, entry);
+        } catch (IOException e) {
+            reportWriteFailure(entry, e);
+        }
+        return doc;
+    }
+
+    /**
+     * Gets the input encoding of a document returned by this cache.
+     *
+     * @param doc
+     * @return the encoding
+     */
+    public String getInputEncoding(Document doc) {
+        synchronized (inputEncodings) {
+            String encoding = (String) inputEncodings.get(doc);
+            return encoding != null ? encoding : DOMUtil.getInputEncoding(doc);
+        }
+    }
+
+    /**
+     * Reads all the bytes of a source.
+     *
+     * @param inputSource
+     * @return the bytes, or null if the source is a character stream or has no system ID
+     * @throws IOException
+     */
+    private byte[] readContent(InputSource inputSource) throws IOException {
+        if (inputSource.getCharacterStream() != null || inputSource.getSystemId() == null) {
+            return null;
+        }
+        InputStream in = inputSource.getByteStream();
+        if (in == null) {
+            in = openSystemId(inputSource.getSystemId());
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            if (inputSource.getByteStream() == null) {
+                in.close();
+            }
+        }
+    }
+
+    private InputStream openSystemId(String systemId) throws IOException {
+        try {
+            return new URL(systemId).openStream();
+        } catch (java.net.MalformedURLException e) {
+            // a plain file name
+            return new FileInputStream(systemId);
+        }
+    }
+
+    private String getKey(String systemId, byte[] content) {
+        try {
+            MessageDigest contentDigest = MessageDigest.getInstance("SHA-1");
+            MessageDigest keyDigest = MessageDigest.getInstance("SHA-1");
+            keyDigest.update(systemId.getBytes(UTF_8));
+            keyDigest.update((byte) 0);
+            keyDigest.update(contentDigest.digest(content));
+            byte[] key = keyDigest.digest();
+            StringBuffer buffer = new StringBuffer(key.length * 2);
+            for (int i = 0; i < key.length; i++) {
+                buffer.append(Character.forDigit((key[i] >> 4) & 0xf, 16));
+                buffer.append(Character.forDigit(key[i] & 0xf, 16));
+            }
+            return buffer.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private synchronized void reportWriteFailure(File entry, IOException e) {
+        if (!writeFailureReported) {
+            writeFailureReported = true;
+            System.err.println("The schema document cache entry " + entry
+                               + " cannot be written: " + e);
+        }
+    }
+
+    private void write(Document doc, File entry) throws IOException {
+        // written to a file of its own first, so a concurrent reader never sees half of it
+        File tempFile = File.createTempFile("schema", ".tmp", directory);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                Map strings = new HashMap();
+                writeString(out, strings, DOMUtil.getInputEncoding(doc));
+                writeChildren(out, strings, doc);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        if (!tempFile.renameTo(entry)) {
+            entry.delete();
+            if (!tempFile.renameTo(entry)) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    private void writeChildren(DataOutputStream out, Map strings, Node parent)
+            throws IOException {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            switch (child.getNodeType()) {
+                case Node.ELEMENT_NODE:
+                    out.writeByte(ELEMENT);
+                    writeString(out, strings, child.getNamespaceURI());
+                    writeString(out, strings, child.getNodeName());
+                    NamedNodeMap attributes = child.getAttributes();
+                    out.writeInt(attributes.getLength());
+                    for (int i = 0; i < attributes.getLength(); i++) {
+                        Attr attribute = (Attr) attributes.item(i);
+                        writeString(out, strings, attribute.getNamespaceURI());
+                        writeString(out, strings, attribute.getName());
+                        writeString(out, strings, attribute.getValue());
+                    }
+                    writeChildren(out, strings, child);
+                    break;
+                case Node.TEXT_NODE:
+                    out.writeByte(TEXT);
+                    writeString(out, strings, child.getNodeValue());
+                    break;
+                case Node.CDATA_SECTION_NODE:
+                    out.writeByte(CDATA);
+                    writeString(out, strings, child.getNodeValue());
+                    break;
+                case Node.COMMENT_NODE:
+                    out.writeByte(COMMENT);
+                    writeString(out, strings, child.getNodeValue());
+                    break;
+                case Node.PROCESSING_INSTRUCTION_NODE:
+                    out.writeByte(PROCESSING_INSTRUCTION);
+                    writeString(out, strings, child.getNodeName());
+                    writeString(out, strings, child.getNodeValue());
+                    break;
+                default:
+                    // document types and entity references do not matter to the schema
+                    break;
+            }
+        }
+        out.writeByte(END);
+    }
+
+    /**
+     * Writes a string, or the number of the same string written before. Namespaces, names
+     * and most attribute values repeat a lot in schema documents.
+     */
+    private void writeString(DataOutputStream out, Map strings, String value)
+            throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        Integer index = (Integer) strings.get(value);
+        if (index != null) {
+            out.writeInt(index.intValue());
+            return;
+        }
+        strings.put(value, new Integer(strings.size()));
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(NEW_STRING);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private Document read(File entry, DocumentBuilder builder) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(entry)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a schema cache entry: " + entry);
+            }
+            List strings = new ArrayList();
+            String encoding = readString(in, strings);
+            Document doc = builder.newDocument();
+            readChildren(in, strings, doc, doc);
+            synchronized (inputEncodings) {
+                inputEncodings.put(doc, encoding);
+            }
+            return doc;
+        } finally {
+            in.close();
+        }
+    }
+
+    private void readChildren(DataInputStream in, List strings, Document doc, Node parent)
+            throws IOException {
+        for (byte type = in.readByte(); type != END; type = in.readByte()) {
+            switch (type) {
+                case ELEMENT:
+                    Element element = doc.createElementNS(readString(in, strings),
+                                                          readString(in, strings));
+                    int attributeCount = in.readInt();
+                    for (int i = 0; i < attributeCount; i++) {
+                        element.setAttributeNS(readString(in, strings),
+                                               readString(in, strings),
+                                               readString(in, strings));
+                    }
+                    readChildren(in, strings, doc, element);
+                    parent.appendChild(element);
+                    break;
+                case TEXT:
+                    parent.appendChild(doc.createTextNode(readString(in, strings)));
+                    break;
+                case CDATA:
+                    parent.appendChild(doc.createCDATASection(readString(in, strings)));
+                    break;
+                case COMMENT:
+                    parent.appendChild(doc.createComment(readString(in, strings)));
+                    break;
+                case PROCESSING_INSTRUCTION:
+                    parent.appendChild(doc.createProcessingInstruction(
+                            readString(in, strings), readString(in, strings)));
+                    break;
+                default:
+                    throw new IOException("Unknown node type " + type);
+            }
+        }
+    }
+
+    private String readString(DataInputStream in, List strings) throws IOException {
+        int index = in.readInt();
+        if (index == NULL_STRING) {
+            return null;
+        }
+        if (index != NEW_STRING) {
+            return (String) strings.get(index);
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        String value = new String(bytes, UTF_8);
+        strings.add(value);
+        return value;
+    }
+}
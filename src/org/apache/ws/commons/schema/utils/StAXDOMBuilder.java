@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ws.commons.schema.utils;
+
+import org.apache.ws.commons.schema.constants.Constants;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Builds a DOM from a StAX stream. The document holds the elements, attributes, namespace
+ * declarations, text, CDATA sections, comments and processing instructions of the stream;
+ * the document type is not kept.
+ */
+public class StAXDOMBuilder {
+
+    /**
+     * Reads the rest of a stream into a document.
+     *
+     * @param reader the stream, positioned at the start of the document or of an element
+     * @param doc    an empty document to add the content to
+     * @return the document
+     * @throws XMLStreamException
+     */
+    public static Document build(XMLStreamReader reader, Document doc)
+            throws XMLStreamException {
+        Node parent = doc;
+        int depth = 0;
+        int event = reader.getEventType();
+        while (true) {
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    Element element = doc.createElementNS(
+                            emptyToNull(reader.getNamespaceURI()),
+                            getQualifiedName(reader.getPrefix(), reader.getLocalName()));
+                    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                        String prefix = reader.getNamespacePrefix(i);
+                        element.setAttributeNS(Constants.XMLNS_ATTRIBUTE_NS_URI,
+                                               prefix == null || "".equals(prefix)
+                                                       ? Constants.XMLNS_ATTRIBUTE
+                                                       : Constants.XMLNS_ATTRIBUTE + ":" + prefix,
+                                               nullToEmpty(reader.getNamespaceURI(i)));
+                    }
+                    for (int i = 0; i < reader.getAttributeCount(); i++) {
+                        element.setAttributeNS(
+                                emptyToNull(reader.getAttributeNamespace(i)),
+                                getQualifiedName(reader.getAttributePrefix(i),
+                                                 reader.getAttributeLocalName(i)),
+                                reader.getAttributeValue(i));
+                    }
+                    parent.appendChild(element);
+                    parent = element;
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    parent = parent.getParentNode();
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    // text outside the document element is not part of the DOM
+                    if (depth > 0) {
+                        parent.appendChild(doc.createTextNode(reader.getText()));
+                    }
+                    break;
+                case XMLStreamConstants.CDATA:
+                    parent.appendChild(doc.createCDATASection(reader.getText()));
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    parent.appendChild(doc.createComment(reader.getText()));
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    parent.appendChild(doc.createProcessingInstruction(reader.getPITarget(),
+                                                                       reader.getPIData()));
+                    break;
+                default:
+                    break;
+            }
+            if (depth == 0 && parent == doc && event == XMLStreamConstants.END_ELEMENT
+                    || !reader.hasNext()) {
+                break;
+            }
+            event = reader.next();
+        }
+        // the parser may hand out the text of an element in several pieces
+        if (doc.getDocumentElement() != null) {
+            doc.getDocumentElement().normalize();
+        }
+        return doc;
+    }
+
+    private static String getQualifiedName(String prefix, String localName) {
+        return prefix == null || "".equals(prefix) ? localName : prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String value) {
+        return "".equals(value) ? null : value;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}